@@ -0,0 +1,45 @@
+package ru.dankon.userinfo.benchmark;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.util.JwtUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkFixtures {
+    static final String SECRET = "2a07e1b4a9f9c17e415c517d21c3997500120091702ae6814277dd50d1b8f6f5";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    static User user(long id) {
+        return User.builder()
+                .id(id)
+                .lastName("Иванов")
+                .firstName("Иван")
+                .patronymic("Иванович")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("user" + id + "@example.com")
+                .phoneNumber("+7999" + String.format("%07d", id))
+                .photoPath("ab/cd/abcdef.jpg")
+                .build();
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            users.add(user(i));
+        }
+        return users;
+    }
+}
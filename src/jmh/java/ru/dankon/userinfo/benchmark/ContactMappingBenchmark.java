@@ -0,0 +1,27 @@
+package ru.dankon.userinfo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.dankon.userinfo.dto.UserContactInfo;
+import ru.dankon.userinfo.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactMappingBenchmark {
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkFixtures.user(1);
+    }
+
+    @Benchmark
+    public UserContactInfo toContactInfo() {
+        return UserContactInfo.from(user);
+    }
+}
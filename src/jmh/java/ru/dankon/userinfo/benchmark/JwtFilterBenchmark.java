@@ -0,0 +1,58 @@
+package ru.dankon.userinfo.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import ru.dankon.userinfo.util.JwtFilter;
+import ru.dankon.userinfo.util.JwtTokenCache;
+import ru.dankon.userinfo.util.JwtUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full filter pass for a bearer token, with the verified-token cache enabled and disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private JwtFilter jwtFilter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = BenchmarkFixtures.jwtUtil();
+        InMemoryUserDetailsManager userDetailsService = new InMemoryUserDetailsManager(
+                User.withUsername("admin").password("{noop}admin").roles("ADMIN").build());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtFilter = new JwtFilter(jwtUtil, userDetailsService,
+                new JwtTokenCache(cacheEnabled ? 10_000 : 0, meterRegistry), meterRegistry);
+        authorization = "Bearer " + jwtUtil.generateToken("admin");
+    }
+
+    @Benchmark
+    public int doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            jwtFilter.doFilter(request, response, NO_OP_CHAIN);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+}
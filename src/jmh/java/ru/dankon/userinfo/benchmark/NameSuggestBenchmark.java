@@ -0,0 +1,64 @@
+package ru.dankon.userinfo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.dankon.userinfo.config.properties.SuggestProperties;
+import ru.dankon.userinfo.dto.UserSuggestion;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.impl.NameSuggestIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 suggestions from an index of 200k users, right after a rebuild and with a pending delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameSuggestBenchmark {
+    private static final int USERS = 200_000;
+    private static final String[] LAST_NAMES = {"Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров"};
+    private static final String[] FIRST_NAMES = {"Александр", "Дмитрий", "Максим", "Сергей", "Андрей", "Иван"};
+
+    @Param({"0", "5000"})
+    public int pendingChanges;
+
+    private NameSuggestIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new NameSuggestIndex(new SuggestProperties(10, 50, Integer.MAX_VALUE));
+        Random random = new Random(42);
+        index.rebuild(consumer -> {
+            for (long id = 1; id <= USERS; id++) {
+                consumer.accept(user(id, random));
+            }
+        });
+        for (long id = USERS + 1; id <= USERS + pendingChanges; id++) {
+            index.put(user(id, random));
+        }
+    }
+
+    @Benchmark
+    public List<UserSuggestion> shortPrefix() {
+        return index.suggest("и", 10);
+    }
+
+    @Benchmark
+    public List<UserSuggestion> longPrefix() {
+        return index.suggest("кузнецов1", 10);
+    }
+
+    private static User user(long id, Random random) {
+        return User.builder()
+                .id(id)
+                .lastName(LAST_NAMES[random.nextInt(LAST_NAMES.length)] + id % 1000)
+                .firstName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)])
+                .patronymic(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + "ович")
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.dankon.userinfo.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import ru.dankon.userinfo.config.properties.ThumbnailProperties;
+import ru.dankon.userinfo.domain.PhotoBlobRepository;
+import ru.dankon.userinfo.service.impl.ContentAddressedPhotoStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The upload write path behind saveFile: streaming to a temporary file, hashing and deduplication.
+ * Every invocation stores the same payload, so after the first one the temporary copy is dropped
+ * and the storage directory does not grow during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhotoStoreBenchmark {
+    @Param({"16384", "524288", "4194304"})
+    public int payloadSize;
+
+    private Path storage;
+    private byte[] payload;
+    private ContentAddressedPhotoStore photoStore;
+
+    @Setup
+    public void setUp() throws IOException {
+        storage = Files.createTempDirectory("photo-store-benchmark");
+        payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+
+        PhotoBlobRepository photoBlobRepository = mock(PhotoBlobRepository.class);
+        when(photoBlobRepository.incrementRefCount(anyString())).thenReturn(1);
+
+        photoStore = new ContentAddressedPhotoStore(photoBlobRepository, new ThumbnailProperties(List.of(), 1, 1, 1_000_000),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(photoStore, "storageDirectory", storage.toString());
+        ReflectionTestUtils.setField(photoStore, "maxUploadSize", DataSize.ofMegabytes(5));
+        photoStore.init();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(storage);
+    }
+
+    @Benchmark
+    public String store() {
+        return photoStore.store(new ByteArrayInputStream(payload), payloadSize, ".jpg");
+    }
+}
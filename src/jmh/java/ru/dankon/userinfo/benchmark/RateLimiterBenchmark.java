@@ -0,0 +1,42 @@
+package ru.dankon.userinfo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.dankon.userinfo.util.RateLimiter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bucket check under contention, for a handful of principals sharing buckets and for many with a bucket each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimiterBenchmark {
+    private static final long INTERVAL = 1;
+    private static final long TOLERANCE = TimeUnit.SECONDS.toNanos(1);
+
+    @Param({"4", "100000"})
+    public int principals;
+
+    private RateLimiter limiter;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        limiter = new RateLimiter(System::nanoTime);
+        names = new String[principals];
+        for (int i = 0; i < principals; i++) {
+            names[i] = "user:" + i;
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        return limiter.tryAcquire(names[ThreadLocalRandom.current().nextInt(principals)], 0, INTERVAL, TOLERANCE);
+    }
+}
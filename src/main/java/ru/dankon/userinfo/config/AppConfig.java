@@ -0,0 +1,39 @@
+package ru.dankon.userinfo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.dankon.userinfo.config.properties.BatchProperties;
+import ru.dankon.userinfo.config.properties.ChangeFeedProperties;
+import ru.dankon.userinfo.config.properties.IdempotencyProperties;
+import ru.dankon.userinfo.config.properties.ImportProperties;
+import ru.dankon.userinfo.config.properties.PaginationProperties;
+import ru.dankon.userinfo.config.properties.QueryBudgetProperties;
+import ru.dankon.userinfo.config.properties.RateLimitProperties;
+import ru.dankon.userinfo.config.properties.SuggestProperties;
+import ru.dankon.userinfo.config.properties.ThumbnailProperties;
+import ru.dankon.userinfo.config.properties.UserCacheProperties;
+import ru.dankon.userinfo.dto.UserContactInfo;
+import ru.dankon.userinfo.service.impl.SingleFlight;
+
+@Configuration
+@EnableConfigurationProperties({
+        PaginationProperties.class,
+        UserCacheProperties.class,
+        BatchProperties.class,
+        ThumbnailProperties.class,
+        QueryBudgetProperties.class,
+        SuggestProperties.class,
+        ChangeFeedProperties.class,
+        ImportProperties.class,
+        RateLimitProperties.class,
+        IdempotencyProperties.class
+})
+public class AppConfig {
+
+    @Bean
+    public SingleFlight<Long, UserContactInfo> contactLookups(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("contact", meterRegistry);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "users.batch")
+public record BatchProperties(
+        int maxSize
+) {}
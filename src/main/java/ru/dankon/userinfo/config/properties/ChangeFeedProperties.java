@@ -0,0 +1,13 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "users.change-feed")
+public record ChangeFeedProperties(
+        int capacity,
+        Duration heartbeat,
+        Duration maxConnectionTime,
+        int maxSubscribers
+) {}
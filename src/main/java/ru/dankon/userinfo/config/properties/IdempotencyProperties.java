@@ -0,0 +1,12 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "users.idempotency")
+public record IdempotencyProperties(
+        Duration ttl,
+        long maximumSize,
+        Duration waitTimeout
+) {}
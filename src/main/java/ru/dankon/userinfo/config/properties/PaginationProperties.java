@@ -0,0 +1,9 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "users.pagination")
+public record PaginationProperties(
+        int defaultLimit,
+        int maxLimit
+) {}
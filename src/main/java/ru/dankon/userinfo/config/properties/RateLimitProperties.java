@@ -0,0 +1,28 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "users.rate-limit")
+public record RateLimitProperties(
+        boolean enabled,
+        Duration sweepInterval,
+        List<Rule> rules
+) {
+    /**
+     * Allows {@code limit} requests per {@code period} to the routes matching {@code pattern},
+     * with up to {@code burst} of them at once.
+     *
+     * @param methods HTTP methods the rule applies to, all of them when empty
+     * @param burst   defaults to {@code limit}
+     */
+    public record Rule(
+            String pattern,
+            List<String> methods,
+            int limit,
+            Duration period,
+            Integer burst
+    ) {}
+}
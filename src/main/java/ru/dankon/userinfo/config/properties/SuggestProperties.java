@@ -0,0 +1,10 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "users.suggest")
+public record SuggestProperties(
+        int defaultLimit,
+        int maxLimit,
+        int compactionThreshold
+) {}
@@ -0,0 +1,13 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "file.thumbnails")
+public record ThumbnailProperties(
+        List<Integer> sizes,
+        int threads,
+        int queueCapacity,
+        long maxPixels
+) {}
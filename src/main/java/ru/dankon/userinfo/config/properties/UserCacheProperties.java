@@ -0,0 +1,12 @@
+package ru.dankon.userinfo.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "users.cache")
+public record UserCacheProperties(
+        DataSize maxMemory,
+        Duration ttl
+) {}
@@ -5,19 +5,32 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.dankon.userinfo.dto.AuthRequest;
+import ru.dankon.userinfo.exceptions.InvalidTokenException;
 import ru.dankon.userinfo.util.JwtUtil;
+import ru.dankon.userinfo.util.RefreshTokenStore;
 
+/**
+ * The access token is the response body; the refresh token travels in the {@value #REFRESH_TOKEN_HEADER}
+ * header both ways, so clients that only read the body keep working.
+ */
 @RestController
 @RequestMapping("auth")
 @AllArgsConstructor
 public class AuthController {
+    static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenStore refreshTokenStore;
+    private final UserDetailsService userDetailsService;
 
     @PostMapping("/login")
     public ResponseEntity<String> login(@RequestBody AuthRequest request) {
@@ -26,7 +39,34 @@ public class AuthController {
         );
 
         String token = jwtUtil.generateToken(request.getUsername());
-        return ResponseEntity.ok(token);
+        return ResponseEntity.ok()
+                .header(REFRESH_TOKEN_HEADER, refreshTokenStore.issue(request.getUsername()))
+                .body(token);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token. Costs an HMAC check
+     * and a map update instead of a password hash.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<String> refresh(
+            @RequestHeader(value = REFRESH_TOKEN_HEADER, required = false) String refreshToken) {
+        RefreshTokenStore.Rotation rotation = refreshTokenStore.rotate(refreshToken);
+        try {
+            userDetailsService.loadUserByUsername(rotation.username());
+        } catch (UsernameNotFoundException e) {
+            refreshTokenStore.revoke(rotation.refreshToken());
+            throw new InvalidTokenException();
+        }
+        return ResponseEntity.ok()
+                .header(REFRESH_TOKEN_HEADER, rotation.refreshToken())
+                .body(jwtUtil.generateToken(rotation.username()));
     }
-}
 
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = REFRESH_TOKEN_HEADER, required = false) String refreshToken) {
+        refreshTokenStore.revoke(refreshToken);
+        return ResponseEntity.noContent().build();
+    }
+}
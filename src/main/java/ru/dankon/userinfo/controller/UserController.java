@@ -1,34 +1,167 @@
 package ru.dankon.userinfo.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.dankon.userinfo.dto.BatchItemResult;
+import ru.dankon.userinfo.dto.CursorPage;
+import ru.dankon.userinfo.dto.DataFormat;
 import ru.dankon.userinfo.dto.UserContactInfo;
+import ru.dankon.userinfo.dto.UserContactsResponse;
+import ru.dankon.userinfo.dto.UserPatch;
+import ru.dankon.userinfo.dto.UserSearchCriteria;
+import ru.dankon.userinfo.dto.UserSuggestion;
 import ru.dankon.userinfo.model.User;
 import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.service.impl.UserChangeStreamer;
+import ru.dankon.userinfo.service.impl.UserExporter;
+import ru.dankon.userinfo.service.impl.UserImporter;
+import ru.dankon.userinfo.util.FileResponseWriter;
+import ru.dankon.userinfo.util.VersionETags;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("users")
 public class UserController {
 
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final UserChangeStreamer changeStreamer;
+    private final UserExporter userExporter;
+    private final UserImporter userImporter;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, UserChangeStreamer changeStreamer,
+                          UserExporter userExporter, UserImporter userImporter) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.changeStreamer = changeStreamer;
+        this.userExporter = userExporter;
+        this.userImporter = userImporter;
     }
 
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<CursorPage<User>> getUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.getUsers(cursor, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<User>> searchUsers(
+            @ModelAttribute UserSearchCriteria criteria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.searchUsers(criteria, cursor, limit));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<UserSuggestion>> suggestUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userService.suggestUsers(q, limit));
+    }
+
+    /**
+     * Imports a CSV (with a header row) or NDJSON body, optionally gzip-encoded, and streams back
+     * an NDJSON report of the rejected rows followed by a summary.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        DataFormat format = DataFormat.of(MediaType.parseMediaType(request.getContentType()));
+        InputStream body = "gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))
+                ? new GZIPInputStream(request.getInputStream())
+                : request.getInputStream();
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userImporter.importUsers(format, body, response.getOutputStream());
+    }
+
+    /**
+     * Streams users for bulk loads, gzip-compressed when the client accepts it.
+     * Deletions are not visible to {@code updatedSince} pulls, the change feed carries them.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String updatedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        DataFormat exportFormat = DataFormat.of(format);
+        Instant since = UserExporter.parseUpdatedSince(updatedSince);
+        boolean gzip = UserExporter.acceptsGzip(acceptEncoding);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.extension())
+                        .build()
+                        .toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> userExporter.export(exportFormat, since, gzip, out));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeStreamer.subscribe(lastEventId);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+            try {
+                userService.streamAllUsers(user -> {
+                    try {
+                        writer.writeValue(generator, user);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                generator.close();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
+    /**
+     * The ETag is the user's version; a matching If-None-Match gets 304 without a body.
+     */
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserFullInfoById(@PathVariable Long id) {
-        return ResponseEntity.ok(userService.getUserById(id));
+        User user = userService.getUserById(id);
+        return ResponseEntity.ok()
+                .eTag(VersionETags.of(user.getVersion()))
+                .body(user);
     }
 
     @GetMapping("/{id}/contact")
@@ -36,14 +169,60 @@ public class UserController {
         return ResponseEntity.ok(userService.getUserContactInfoById(id));
     }
 
+    @PostMapping("/contacts")
+    public ResponseEntity<UserContactsResponse> getUserContactInfos(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(userService.getUserContactInfos(ids));
+    }
+
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
         return ResponseEntity.status(HttpStatus.CREATED).body(userService.createUser(user));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> createUsers(@RequestBody List<User> users) {
+        return ResponseEntity.ok(userService.createUsers(users));
+    }
+
+    /**
+     * With If-Match the update is a single conditional statement: 204 with the new ETag,
+     * or 412 when the user has changed since. Without it the updated user is returned.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User user) {
-        return ResponseEntity.ok(userService.updateUser(id, user));
+    public ResponseEntity<User> updateUser(
+            @PathVariable Long id,
+            @RequestBody User user,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion = VersionETags.parseIfMatch(ifMatch);
+        if (expectedVersion == null) {
+            User saved = userService.updateUser(id, user);
+            return ResponseEntity.ok()
+                    .eTag(VersionETags.of(saved.getVersion()))
+                    .body(saved);
+        }
+        long version = userService.updateUser(id, user, expectedVersion);
+        return ResponseEntity.noContent()
+                .eTag(VersionETags.of(version))
+                .build();
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<User> patchUser(
+            @PathVariable Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserPatch userPatch = UserPatch.from(patch);
+        Long expectedVersion = VersionETags.parseIfMatch(ifMatch);
+        if (expectedVersion == null) {
+            User saved = userService.patchUser(id, userPatch);
+            return ResponseEntity.ok()
+                    .eTag(VersionETags.of(saved.getVersion()))
+                    .body(saved);
+        }
+        long version = userService.patchUser(id, userPatch, expectedVersion);
+        return ResponseEntity.noContent()
+                .eTag(VersionETags.of(version))
+                .build();
     }
 
     @DeleteMapping("/{id}")
@@ -59,8 +238,23 @@ public class UserController {
         return ResponseEntity.ok(userService.uploadPhoto(id, file));
     }
 
+    @PutMapping(value = "/{id}/photo", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<User> uploadPhoto(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(userService.uploadPhoto(
+                id, request.getInputStream(), request.getContentLengthLong(), request.getContentType()));
+    }
+
     @GetMapping("/{id}/photo")
-    public ResponseEntity<String> getPhoto(@PathVariable Long id) {
+    public void getPhoto(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        FileResponseWriter.write(userService.getPhotoFile(id, size), request, response);
+    }
+
+    @GetMapping(value = "/{id}/photo", params = "pathOnly=true")
+    public ResponseEntity<String> getPhotoPath(@PathVariable Long id) {
         return ResponseEntity.ok(userService.getPhotoPath(id));
     }
 
@@ -0,0 +1,31 @@
+package ru.dankon.userinfo.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.dankon.userinfo.model.PhotoBlob;
+
+/**
+ * Reference counts are only changed with single statements, which lock the row until the
+ * surrounding transaction ends; callers must run them in one.
+ */
+public interface PhotoBlobRepository extends JpaRepository<PhotoBlob, String> {
+
+    @Modifying
+    @Query("update PhotoBlob b set b.refCount = b.refCount + 1 where b.path = :path")
+    int incrementRefCount(@Param("path") String path);
+
+    @Modifying
+    @Query(value = "insert into photo_blobs (path, ref_count) values (:path, 1) on conflict do nothing",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("path") String path);
+
+    @Modifying
+    @Query("update PhotoBlob b set b.refCount = b.refCount - 1 where b.path = :path and b.refCount > 1")
+    int decrementUnlessLast(@Param("path") String path);
+
+    @Modifying
+    @Query("delete from PhotoBlob b where b.path = :path and b.refCount <= 1")
+    int deleteIfLast(@Param("path") String path);
+}
@@ -0,0 +1,14 @@
+package ru.dankon.userinfo.domain;
+
+import java.util.Map;
+
+public interface UserPatchRepository {
+
+    /**
+     * Sets only the given attributes and bumps the version in a single UPDATE.
+     * With a non-null {@code version} only that version is updated.
+     *
+     * @return the number of updated rows
+     */
+    int patch(Long id, Map<String, Object> changes, Long version);
+}
@@ -0,0 +1,34 @@
+package ru.dankon.userinfo.domain;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class UserPatchRepositoryImpl implements UserPatchRepository {
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(Long id, Map<String, Object> changes, Long version) {
+        // Attribute names come from UserPatch's fixed set, never from the request
+        String assignments = changes.keySet().stream()
+                .map(attribute -> "u." + attribute + " = :" + attribute)
+                .collect(Collectors.joining(", "));
+        Query update = entityManager.createQuery("update User u set " + assignments
+                + ", u.version = u.version + 1, u.updatedAt = :updatedAt where u.id = :id"
+                + (version == null ? "" : " and u.version = :version"));
+        changes.forEach(update::setParameter);
+        update.setParameter("updatedAt", Instant.now());
+        update.setParameter("id", id);
+        if (version != null) {
+            update.setParameter("version", version);
+        }
+        return update.executeUpdate();
+    }
+}
@@ -1,10 +1,83 @@
 package ru.dankon.userinfo.domain;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.dankon.userinfo.dto.UserContactInfo;
 import ru.dankon.userinfo.model.User;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserPatchRepository {
+    String STREAM_FETCH_SIZE = "500";
+
     boolean existsByEmail(String email);
     boolean existsByPhoneNumber(String phoneNumber);
+    boolean existsByEmailAndIdNot(String email, Long id);
+    boolean existsByPhoneNumberAndIdNot(String phoneNumber, Long id);
+
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select u.phoneNumber from User u where u.phoneNumber in :phoneNumbers")
+    Set<String> findExistingPhoneNumbers(@Param("phoneNumbers") Collection<String> phoneNumbers);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<User> findByPhotoPathIsNotNullAndIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.photoPath = :newPath, u.version = u.version + 1, "
+            + "u.updatedAt = :#{T(java.time.Instant).now()} "
+            + "where u.id = :id and u.photoPath = :oldPath")
+    int replacePhotoPath(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    /**
+     * Overwrites the user's details in one statement and bumps the version. The photo is left alone,
+     * it is owned by the photo endpoints. With a non-null {@code version} only that version is updated.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.lastName = :#{#user.lastName}, u.firstName = :#{#user.firstName}, "
+            + "u.patronymic = :#{#user.patronymic}, u.birthDate = :#{#user.birthDate}, "
+            + "u.email = :#{#user.email}, u.phoneNumber = :#{#user.phoneNumber}, u.version = u.version + 1, "
+            + "u.updatedAt = :#{T(java.time.Instant).now()} "
+            + "where u.id = :id and (:version is null or u.version = :version)")
+    int updateDetails(@Param("id") Long id, @Param("user") User user, @Param("version") Long version);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamAllByOrderByIdAsc();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<User> streamByUpdatedAtGreaterThanEqualOrderByIdAsc(Instant updatedSince);
+
+    @Query("select new ru.dankon.userinfo.dto.UserContactInfo("
+            + "u.id, u.lastName, u.firstName, u.patronymic, u.phoneNumber, u.email) "
+            + "from User u where u.id = :id")
+    Optional<UserContactInfo> findContactInfoById(@Param("id") Long id);
 
+    @Query("select new ru.dankon.userinfo.dto.UserContactInfo("
+            + "u.id, u.lastName, u.firstName, u.patronymic, u.phoneNumber, u.email) "
+            + "from User u where u.id in :ids")
+    List<UserContactInfo> findContactInfoByIdIn(@Param("ids") Collection<Long> ids);
 }
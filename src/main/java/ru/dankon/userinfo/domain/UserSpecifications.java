@@ -0,0 +1,61 @@
+package ru.dankon.userinfo.domain;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.dankon.userinfo.dto.UserSearchCriteria;
+import ru.dankon.userinfo.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds search predicates that match the indexes on {@code users}: name prefixes compare
+ * {@code lower(column) like 'prefix%'}, which Postgres serves from the {@code text_pattern_ops}
+ * indexes; email and phone use their unique indexes; the birth date range uses its own index.
+ */
+public final class UserSpecifications {
+    private static final char LIKE_ESCAPE = '\\';
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> matching(UserSearchCriteria criteria, Long afterId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.greaterThan(root.get("id"), afterId));
+            if (criteria.getLastName() != null) {
+                predicates.add(cb.like(cb.lower(root.get("lastName")),
+                        prefixPattern(criteria.getLastName()), LIKE_ESCAPE));
+            }
+            if (criteria.getFirstName() != null) {
+                predicates.add(cb.like(cb.lower(root.get("firstName")),
+                        prefixPattern(criteria.getFirstName()), LIKE_ESCAPE));
+            }
+            if (criteria.getEmail() != null) {
+                predicates.add(cb.equal(root.get("email"), criteria.getEmail()));
+            }
+            if (criteria.getPhoneNumber() != null) {
+                predicates.add(cb.equal(root.get("phoneNumber"), criteria.getPhoneNumber()));
+            }
+            if (criteria.getBirthDateFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("birthDate"), criteria.getBirthDateFrom()));
+            }
+            if (criteria.getBirthDateTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("birthDate"), criteria.getBirthDateTo()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    private static String prefixPattern(String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 2);
+        for (char c : prefix.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -0,0 +1,32 @@
+package ru.dankon.userinfo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private Status status;
+    private Long id;
+    private String message;
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, Status.CREATED, id, null);
+    }
+
+    public static BatchItemResult duplicate(int index) {
+        return new BatchItemResult(index, Status.DUPLICATE, null,
+                "User with this email or phone number already exists.");
+    }
+
+    public static BatchItemResult invalid(int index, String message) {
+        return new BatchItemResult(index, Status.INVALID, null, message);
+    }
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+}
@@ -0,0 +1,45 @@
+package ru.dankon.userinfo.dto;
+
+import org.springframework.http.MediaType;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+public enum DataFormat {
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    DataFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public static DataFormat of(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Format must be csv or ndjson.");
+        }
+    }
+
+    public static DataFormat of(MediaType contentType) {
+        for (DataFormat format : values()) {
+            if (contentType != null && format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        throw new InvalidRequestException("Content type must be text/csv or " + MediaType.APPLICATION_NDJSON_VALUE + ".");
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.dankon.userinfo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImportSummary {
+    private long rows;
+    private long created;
+    private long duplicates;
+    private long invalid;
+    private long durationMs;
+    private long rowsPerSecond;
+    /**
+     * False when unreadable input stopped the import; the rows before it are imported.
+     */
+    private boolean complete;
+}
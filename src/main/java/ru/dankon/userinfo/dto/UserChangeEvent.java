@@ -0,0 +1,27 @@
+package ru.dankon.userinfo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class UserChangeEvent {
+    private long sequence;
+    private Type type;
+    private Long userId;
+    /**
+     * The version after the change, {@code null} for deletions.
+     */
+    private Long version;
+    private Instant timestamp;
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        PHOTO_UPDATED,
+        PHOTO_DELETED
+    }
+}
@@ -1,14 +1,29 @@
 package ru.dankon.userinfo.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import ru.dankon.userinfo.model.User;
 
 @Data
 @Builder
+@AllArgsConstructor
 public class UserContactInfo {
+    private Long id;
     private String lastName;
     private String firstName;
     private String patronymic;
     private String phoneNumber;
     private String email;
+
+    public static UserContactInfo from(User user) {
+        return UserContactInfo.builder()
+                .id(user.getId())
+                .lastName(user.getLastName())
+                .firstName(user.getFirstName())
+                .patronymic(user.getPatronymic())
+                .email(user.getEmail())
+                .phoneNumber(user.getPhoneNumber())
+                .build();
+    }
 }
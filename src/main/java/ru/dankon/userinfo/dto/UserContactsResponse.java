@@ -0,0 +1,13 @@
+package ru.dankon.userinfo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserContactsResponse {
+    private List<UserContactInfo> contacts;
+    private List<Long> missingIds;
+}
@@ -0,0 +1,107 @@
+package ru.dankon.userinfo.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+import ru.dankon.userinfo.model.User;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The columns a JSON merge patch (RFC 7396) sets on a user: a member with a value sets the column,
+ * an explicit null clears it, an absent member leaves it alone. Id, version and photo cannot be patched.
+ */
+public class UserPatch {
+    public static final String LAST_NAME = "lastName";
+    public static final String FIRST_NAME = "firstName";
+    public static final String PATRONYMIC = "patronymic";
+    public static final String BIRTH_DATE = "birthDate";
+    public static final String EMAIL = "email";
+    public static final String PHONE_NUMBER = "phoneNumber";
+
+    private static final Set<String> NAMES = Set.of(LAST_NAME, FIRST_NAME, PATRONYMIC);
+    private static final Set<String> REQUIRED = Set.of(EMAIL, PHONE_NUMBER);
+
+    private final Map<String, Object> changes;
+
+    private UserPatch(Map<String, Object> changes) {
+        this.changes = Collections.unmodifiableMap(changes);
+    }
+
+    public static UserPatch from(JsonNode patch) {
+        if (patch == null || !patch.isObject() || patch.isEmpty()) {
+            throw new InvalidRequestException("Patch must be a non-empty JSON object.");
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            changes.put(field.getKey(), valueOf(field.getKey(), field.getValue()));
+        }
+        return new UserPatch(changes);
+    }
+
+    /**
+     * Attribute name to new value, in the order the client sent them.
+     */
+    public Map<String, Object> changes() {
+        return changes;
+    }
+
+    public boolean changesNames() {
+        return changes.keySet().stream().anyMatch(NAMES::contains);
+    }
+
+    public String email() {
+        return (String) changes.get(EMAIL);
+    }
+
+    public String phoneNumber() {
+        return (String) changes.get(PHONE_NUMBER);
+    }
+
+    public void applyTo(User user) {
+        changes.forEach((attribute, value) -> {
+            switch (attribute) {
+                case LAST_NAME -> user.setLastName((String) value);
+                case FIRST_NAME -> user.setFirstName((String) value);
+                case PATRONYMIC -> user.setPatronymic((String) value);
+                case BIRTH_DATE -> user.setBirthDate((LocalDate) value);
+                case EMAIL -> user.setEmail((String) value);
+                case PHONE_NUMBER -> user.setPhoneNumber((String) value);
+                default -> throw new IllegalStateException("Unexpected attribute " + attribute);
+            }
+        });
+    }
+
+    private static Object valueOf(String attribute, JsonNode value) {
+        switch (attribute) {
+            case LAST_NAME, FIRST_NAME, PATRONYMIC, EMAIL, PHONE_NUMBER -> {
+                if (value.isNull() && !REQUIRED.contains(attribute)) {
+                    return null;
+                }
+                if (!value.isTextual() || (REQUIRED.contains(attribute) && value.asText().isBlank())) {
+                    throw new InvalidRequestException(attribute + " must be "
+                            + (REQUIRED.contains(attribute) ? "a non-blank string." : "a string or null."));
+                }
+                return value.asText();
+            }
+            case BIRTH_DATE -> {
+                if (value.isNull()) {
+                    return null;
+                }
+                try {
+                    return LocalDate.parse(value.asText());
+                } catch (DateTimeParseException e) {
+                    throw new InvalidRequestException("birthDate must be a yyyy-MM-dd date or null.");
+                }
+            }
+            default -> throw new InvalidRequestException(attribute + " cannot be patched.");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.dankon.userinfo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserSuggestion {
+    private Long id;
+    private String lastName;
+    private String firstName;
+    private String patronymic;
+}
@@ -0,0 +1,10 @@
+package ru.dankon.userinfo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class InvalidTokenException extends ResponseStatusException {
+    public InvalidTokenException() {
+        super(HttpStatus.UNAUTHORIZED, "Refresh token is invalid, expired or revoked.");
+    }
+}
@@ -0,0 +1,10 @@
+package ru.dankon.userinfo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class PhotoNotFoundException extends ResponseStatusException {
+    public PhotoNotFoundException(Long id) {
+        super(HttpStatus.NOT_FOUND, "User with ID " + id + " has no photo.");
+    }
+}
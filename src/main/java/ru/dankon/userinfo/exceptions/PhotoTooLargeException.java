@@ -0,0 +1,10 @@
+package ru.dankon.userinfo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class PhotoTooLargeException extends ResponseStatusException {
+    public PhotoTooLargeException(long maxSize) {
+        super(HttpStatus.PAYLOAD_TOO_LARGE, "Photo must not be larger than " + maxSize + " bytes.");
+    }
+}
@@ -0,0 +1,10 @@
+package ru.dankon.userinfo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class TooManySubscribersException extends ResponseStatusException {
+    public TooManySubscribersException() {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Too many change feed subscribers, try again later.");
+    }
+}
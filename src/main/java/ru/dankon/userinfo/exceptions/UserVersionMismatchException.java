@@ -0,0 +1,10 @@
+package ru.dankon.userinfo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class UserVersionMismatchException extends ResponseStatusException {
+    public UserVersionMismatchException(Long id) {
+        super(HttpStatus.PRECONDITION_FAILED, "User with ID " + id + " has been modified.");
+    }
+}
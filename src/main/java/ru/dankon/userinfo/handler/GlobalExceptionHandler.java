@@ -1,11 +1,18 @@
 package ru.dankon.userinfo.handler;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -16,6 +23,28 @@ public class GlobalExceptionHandler {
                 .body(ex.getReason());
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentModification(OptimisticLockingFailureException ex) {
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body("The user was modified concurrently, please retry.");
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<String> handleUnreadableBody(HttpMessageNotReadableException ex) {
+        // Dates are ISO only since birthDate became a date column; older clients sent dd.MM.yyyy
+        if (ex.getCause() instanceof InvalidFormatException format && format.getTargetType() == LocalDate.class) {
+            List<JsonMappingException.Reference> path = format.getPath();
+            String field = path.isEmpty() ? "Date" : path.getLast().getFieldName();
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(field + " must be a yyyy-MM-dd date.");
+        }
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body("Malformed request body.");
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleAllExceptions(Exception ex) {
         return ResponseEntity
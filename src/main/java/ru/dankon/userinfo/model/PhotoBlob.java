@@ -0,0 +1,16 @@
+package ru.dankon.userinfo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "photo_blobs")
+public class PhotoBlob {
+
+    @Id
+    private String path;
+    private long refCount;
+}
@@ -2,25 +2,41 @@ package ru.dankon.userinfo.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.time.LocalDate;
 
 @Entity
 @Data
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "users_birth_date_idx", columnList = "birthDate"),
+        @Index(name = "users_updated_at_idx", columnList = "updatedAt")
+})
 public class User {
+    public static final int ID_ALLOCATION_SIZE = 50;
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     private String lastName;
     private String firstName;
     private String patronymic;
-    private String birthDate;
+    private LocalDate birthDate;
     @Column(unique = true)
     private String email;
     @Column(unique = true)
     private String phoneNumber;
     private String photoPath;
+    // Rows created before the column existed start at 0
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+    // Set from the application clock on every write, bulk updates included; null for rows older than the column
+    @UpdateTimestamp
+    private Instant updatedAt;
 }
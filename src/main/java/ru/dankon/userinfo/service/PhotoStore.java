@@ -0,0 +1,12 @@
+package ru.dankon.userinfo.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public interface PhotoStore {
+    String store(InputStream content, long declaredSize, String extension);
+    void release(String relativePath);
+    Path resolve(String relativePath);
+    Path resolveVariant(String relativePath, int size);
+    boolean isLegacy(String relativePath);
+}
@@ -0,0 +1,8 @@
+package ru.dankon.userinfo.service;
+
+import java.nio.file.Path;
+
+public interface ThumbnailService {
+    void generateAsync(String relativePath);
+    Path resolveNearest(String relativePath, Integer size);
+}
@@ -1,20 +1,62 @@
 package ru.dankon.userinfo.service;
 
 import org.springframework.web.multipart.MultipartFile;
+import ru.dankon.userinfo.dto.BatchItemResult;
+import ru.dankon.userinfo.dto.CursorPage;
 import ru.dankon.userinfo.dto.UserContactInfo;
+import ru.dankon.userinfo.dto.UserContactsResponse;
+import ru.dankon.userinfo.dto.UserPatch;
+import ru.dankon.userinfo.dto.UserSearchCriteria;
+import ru.dankon.userinfo.dto.UserSuggestion;
 import ru.dankon.userinfo.model.User;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
-    List<User> getAllUsers();
+    CursorPage<User> getUsers(String cursor, Integer limit);
+    CursorPage<User> searchUsers(UserSearchCriteria criteria, String cursor, Integer limit);
+    List<UserSuggestion> suggestUsers(String query, Integer limit);
+    void streamAllUsers(Consumer<User> action);
+
+    /**
+     * Like {@link #streamAllUsers(Consumer)}, limited to users written at or after {@code updatedSince} when it is set.
+     */
+    void streamAllUsers(Instant updatedSince, Consumer<User> action);
     User getUserById(Long id);
     UserContactInfo getUserContactInfoById(Long id);
+    UserContactsResponse getUserContactInfos(List<Long> ids);
     User createUser(User user);
+    List<BatchItemResult> createUsers(List<User> users);
     User updateUser(Long id, User user);
+
+    /**
+     * Updates the user only if it is still at {@code expectedVersion}, in a single statement.
+     *
+     * @return the new version
+     */
+    long updateUser(Long id, User user, long expectedVersion);
+
+    /**
+     * Applies a merge patch, writing only the columns it names.
+     */
+    User patchUser(Long id, UserPatch patch);
+
+    /**
+     * Applies a merge patch only if the user is still at {@code expectedVersion}.
+     *
+     * @return the new version
+     */
+    long patchUser(Long id, UserPatch patch, long expectedVersion);
+
     void deleteUser(Long id);
     User uploadPhoto(Long id, MultipartFile file);
+    User uploadPhoto(Long id, InputStream content, long contentLength, String contentType);
     String getPhotoPath(Long id);
+    Path getPhotoFile(Long id, Integer size);
     void deletePhoto(Long id);
 
 }
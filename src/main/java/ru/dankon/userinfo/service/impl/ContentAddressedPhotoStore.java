@@ -0,0 +1,301 @@
+package ru.dankon.userinfo.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.dankon.userinfo.config.properties.ThumbnailProperties;
+import ru.dankon.userinfo.domain.PhotoBlobRepository;
+import ru.dankon.userinfo.exceptions.PhotoTooLargeException;
+import ru.dankon.userinfo.model.PhotoBlob;
+import ru.dankon.userinfo.service.PhotoStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Stores photos under the SHA-256 of their content as {@code ab/cd/<sha256><ext>}, so identical
+ * uploads share one file. Every user referencing a file holds one count in {@link PhotoBlob};
+ * the file is deleted together with its last reference and its resized variants.
+ * <p>
+ * Counts change with atomic statements, and the file is placed or deleted in the same transaction,
+ * while the database holds the row lock. Instances sharing the database and the directory therefore
+ * never delete a file that another one has just referenced.
+ */
+@Service
+public class ContentAddressedPhotoStore implements PhotoStore {
+    private static final Pattern SHARDED_PATH =
+            Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PhotoBlobRepository photoBlobRepository;
+    private final ThumbnailProperties thumbnailProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer writeTimer;
+    private final Timer deleteTimer;
+    private final Counter writtenBytes;
+    private final Counter deletedBytes;
+
+    @Value("${file.storage.directory}")
+    private String storageDirectory;
+
+    @Value("${file.storage.max-upload-size}")
+    private DataSize maxUploadSize;
+
+    public ContentAddressedPhotoStore(PhotoBlobRepository photoBlobRepository,
+                                      ThumbnailProperties thumbnailProperties,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry) {
+        this.photoBlobRepository = photoBlobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.thumbnailProperties = thumbnailProperties;
+        this.writeTimer = ioTimer(meterRegistry, "write", "Time to stream, hash and publish an uploaded photo");
+        this.deleteTimer = ioTimer(meterRegistry, "delete", "Time to release a photo reference and delete unused files");
+        this.writtenBytes = ioCounter(meterRegistry, "write", "Bytes of uploaded photos written to disk");
+        this.deletedBytes = ioCounter(meterRegistry, "delete", "Bytes of photos and variants deleted from disk");
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(temporaryDirectory());
+    }
+
+    @Override
+    public String store(InputStream content, long declaredSize, String extension) {
+        long maxSize = maxUploadSize.toBytes();
+        if (declaredSize > maxSize) {
+            throw new PhotoTooLargeException(maxSize);
+        }
+
+        Timer.Sample sample = Timer.start();
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(temporaryDirectory(), "upload-", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            writtenBytes.increment(writeLimited(content, temporary, digest, maxSize));
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/"
+                    + hash + normalizeExtension(extension);
+
+            Path uploaded = temporary;
+            transactionTemplate.executeWithoutResult(status -> {
+                acquireReference(relativePath);
+                publish(uploaded, root().resolve(relativePath));
+            });
+            return relativePath;
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Failed to save file", e.getCause());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save file", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } finally {
+            deleteQuietly(temporary);
+            sample.stop(writeTimer);
+        }
+    }
+
+    @Override
+    public void release(String relativePath) {
+        if (relativePath == null || relativePath.isBlank()) return;
+        Timer.Sample sample = Timer.start();
+        try {
+            if (isLegacy(relativePath)) {
+                // Files written before content addressing belong to exactly one user
+                deleteWithVariants(relativePath);
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                if (releaseReference(relativePath)) {
+                    try {
+                        deleteWithVariants(relativePath);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Failed to delete file", e.getCause());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file", e);
+        } finally {
+            sample.stop(deleteTimer);
+        }
+    }
+
+    @Override
+    public Path resolve(String relativePath) {
+        if (isLegacy(relativePath)) {
+            // Legacy paths start with the storage directory name; only the file name is trusted
+            return root().resolve(Paths.get(relativePath).getFileName());
+        }
+        return root().resolve(relativePath);
+    }
+
+    @Override
+    public Path resolveVariant(String relativePath, int size) {
+        Path original = resolve(relativePath);
+        String name = original.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        String variantName = (dotIndex == -1)
+                ? name + "_" + size
+                : name.substring(0, dotIndex) + "_" + size + name.substring(dotIndex);
+        return original.resolveSibling(variantName);
+    }
+
+    @Override
+    public boolean isLegacy(String relativePath) {
+        return !SHARDED_PATH.matcher(relativePath).matches();
+    }
+
+    /**
+     * Adds a reference, creating the row for the first one. When two instances insert the same
+     * new row, the second insert waits for the first and then does nothing, so it counts again.
+     */
+    private void acquireReference(String relativePath) {
+        while (photoBlobRepository.incrementRefCount(relativePath) == 0
+                && photoBlobRepository.insertIfAbsent(relativePath) == 0) {
+            // The row appeared or disappeared between the two statements; try again
+        }
+    }
+
+    /**
+     * Drops a reference.
+     *
+     * @return whether it was the last one and the file can go. A path without a row was never
+     * counted, and its file is left alone.
+     */
+    private boolean releaseReference(String relativePath) {
+        while (true) {
+            if (photoBlobRepository.decrementUnlessLast(relativePath) > 0) {
+                return false;
+            }
+            if (photoBlobRepository.deleteIfLast(relativePath) > 0) {
+                return true;
+            }
+            if (!photoBlobRepository.existsById(relativePath)) {
+                return false;
+            }
+            // Another reference was added between the two statements
+        }
+    }
+
+    /**
+     * Moves the upload into place unless an identical file is already there. Runs after the
+     * reference is taken, so a concurrent release of the last other reference cannot delete it.
+     */
+    private static void publish(Path temporary, Path target) {
+        try {
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the stream to the file once, hashing it on the way and failing as soon as it grows past the limit.
+     */
+    private static long writeLimited(InputStream content, Path file, MessageDigest digest, long maxSize)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        try (InputStream in = content;
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxSize) {
+                    throw new PhotoTooLargeException(maxSize);
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+        }
+        return total;
+    }
+
+    private void deleteWithVariants(String relativePath) throws IOException {
+        deleteCounted(resolve(relativePath));
+        for (int size : thumbnailProperties.sizes()) {
+            deleteCounted(resolveVariant(relativePath, size));
+        }
+    }
+
+    private void deleteCounted(Path file) throws IOException {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (Files.deleteIfExists(file)) {
+            deletedBytes.increment(size);
+        }
+    }
+
+    private Path root() {
+        return Paths.get(storageDirectory);
+    }
+
+    private Path temporaryDirectory() {
+        return root().resolve("tmp");
+    }
+
+    private static String normalizeExtension(String extension) {
+        if (extension == null) return "";
+        String normalized = extension.toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(normalized).matches() ? normalized : "";
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // A leftover part file in tmp is harmless
+        }
+    }
+
+    private static Timer ioTimer(MeterRegistry meterRegistry, String operation, String description) {
+        return Timer.builder("photo.store.duration")
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static Counter ioCounter(MeterRegistry meterRegistry, String operation, String description) {
+        return Counter.builder("photo.store.bytes")
+                .description(description)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
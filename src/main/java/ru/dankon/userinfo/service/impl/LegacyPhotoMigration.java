@@ -0,0 +1,83 @@
+package ru.dankon.userinfo.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.domain.UserRepository;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.PhotoStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Moves photos saved as {@code <storage>/<uuid><ext>} into the content-addressed store.
+ * Enabled with {@code file.storage.migrate-legacy=true}; legacy paths keep being served until then.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "file.storage.migrate-legacy", havingValue = "true")
+public class LegacyPhotoMigration implements ApplicationRunner {
+    private static final int PAGE_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final PhotoStore photoStore;
+    private final UserCache userCache;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long migrated = 0;
+        Long afterId = Long.MIN_VALUE;
+        List<User> users;
+        do {
+            users = userRepository.findByPhotoPathIsNotNullAndIdGreaterThanOrderByIdAsc(
+                    afterId, Limit.of(PAGE_SIZE));
+            for (User user : users) {
+                if (photoStore.isLegacy(user.getPhotoPath()) && migrate(user)) {
+                    migrated++;
+                }
+                afterId = user.getId();
+            }
+        } while (users.size() == PAGE_SIZE);
+        log.info("Migrated {} legacy photos to the content-addressed store", migrated);
+    }
+
+    private boolean migrate(User user) {
+        String legacyPath = user.getPhotoPath();
+        Path legacyFile = photoStore.resolve(legacyPath);
+        String storedPath;
+        try (InputStream in = Files.newInputStream(legacyFile)) {
+            storedPath = photoStore.store(in, -1, extensionOf(legacyFile));
+        } catch (NoSuchFileException e) {
+            log.warn("Photo {} of user {} is missing, skipping", legacyPath, user.getId());
+            return false;
+        } catch (IOException e) {
+            log.warn("Failed to migrate photo {} of user {}", legacyPath, user.getId(), e);
+            return false;
+        }
+
+        // The user may have uploaded a new photo meanwhile; then the migrated copy is dropped
+        if (userRepository.replacePhotoPath(user.getId(), legacyPath, storedPath) == 0) {
+            photoStore.release(storedPath);
+            return false;
+        }
+        userCache.invalidate(user.getId());
+        photoStore.release(legacyPath);
+        return true;
+    }
+
+    private static String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        return (dotIndex == -1) ? "" : name.substring(dotIndex);
+    }
+}
@@ -0,0 +1,295 @@
+package ru.dankon.userinfo.service.impl;
+
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.config.properties.SuggestProperties;
+import ru.dankon.userinfo.dto.UserSuggestion;
+import ru.dankon.userinfo.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Prefix index over last, first and patronymic names for type-ahead suggestions.
+ * <p>
+ * Names live in a sorted snapshot of two parallel arrays, so a lookup is a binary search followed by
+ * a short sequential scan. Writes go to a small sorted delta of added and removed entries that readers
+ * merge on the fly; once the delta reaches {@code users.suggest.compaction-threshold} it is folded into
+ * a new snapshot. Readers never lock: they work on whichever snapshot and delta they picked up.
+ */
+@Component
+public class NameSuggestIndex {
+    private final int compactionThreshold;
+    private final Object writeLock = new Object();
+    private final Map<Long, UserSuggestion> users = new ConcurrentHashMap<>();
+    private volatile State state = new State(Snapshot.EMPTY);
+
+    public NameSuggestIndex(SuggestProperties properties) {
+        this.compactionThreshold = properties.compactionThreshold();
+    }
+
+    /**
+     * Returns up to {@code limit} distinct users with a name starting with {@code query},
+     * ordered by the matching name. Case and ё/е are ignored.
+     */
+    public List<UserSuggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix == null) {
+            return List.of();
+        }
+        State current = state;
+        Snapshot snapshot = current.snapshot;
+        Set<Long> ids = new LinkedHashSet<>();
+
+        int i = snapshot.lowerBound(prefix);
+        Iterator<Entry> added = current.added.tailSet(new Entry(prefix, Long.MIN_VALUE)).iterator();
+        Entry pending = nextMatch(added, prefix);
+        while (ids.size() < limit) {
+            boolean snapshotMatches = i < snapshot.size() && snapshot.keys[i].startsWith(prefix);
+            if (!snapshotMatches && pending == null) {
+                break;
+            }
+            if (snapshotMatches && (pending == null || snapshot.compare(i, pending) < 0)) {
+                if (current.removed.isEmpty() || !current.removed.contains(snapshot.entry(i))) {
+                    ids.add(snapshot.ids[i]);
+                }
+                i++;
+            } else {
+                ids.add(pending.id);
+                pending = nextMatch(added, prefix);
+            }
+        }
+
+        List<UserSuggestion> suggestions = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            UserSuggestion suggestion = users.get(id);
+            if (suggestion != null) {
+                suggestions.add(suggestion);
+            }
+        }
+        return suggestions;
+    }
+
+    public UserSuggestion get(Long id) {
+        return users.get(id);
+    }
+
+    public void put(User user) {
+        UserSuggestion suggestion = new UserSuggestion(
+                user.getId(), user.getLastName(), user.getFirstName(), user.getPatronymic());
+        synchronized (writeLock) {
+            Set<String> previousKeys = keysOf(users.put(user.getId(), suggestion));
+            Set<String> keys = keysOf(suggestion);
+            for (String key : previousKeys) {
+                if (!keys.contains(key)) {
+                    state.remove(new Entry(key, user.getId()));
+                }
+            }
+            for (String key : keys) {
+                if (!previousKeys.contains(key)) {
+                    state.add(new Entry(key, user.getId()));
+                }
+            }
+            compactIfNeeded();
+        }
+    }
+
+    public void remove(Long id) {
+        synchronized (writeLock) {
+            for (String key : keysOf(users.remove(id))) {
+                state.remove(new Entry(key, id));
+            }
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the users the source passes to its consumer.
+     */
+    public void rebuild(Consumer<Consumer<User>> source) {
+        synchronized (writeLock) {
+            users.clear();
+            List<Entry> entries = new ArrayList<>();
+            // Names repeat a lot, so equal strings are stored once
+            Map<String, String> interned = new HashMap<>();
+            source.accept(user -> {
+                UserSuggestion suggestion = new UserSuggestion(user.getId(),
+                        intern(interned, user.getLastName()),
+                        intern(interned, user.getFirstName()),
+                        intern(interned, user.getPatronymic()));
+                users.put(user.getId(), suggestion);
+                for (String key : keysOf(suggestion)) {
+                    entries.add(new Entry(intern(interned, key), user.getId()));
+                }
+            });
+            Collections.sort(entries);
+            state = new State(Snapshot.of(entries));
+        }
+    }
+
+    int deltaSize() {
+        return state.deltaSize;
+    }
+
+    private void compactIfNeeded() {
+        State current = state;
+        if (current.deltaSize < compactionThreshold) {
+            return;
+        }
+        Snapshot snapshot = current.snapshot;
+        List<Entry> entries = new ArrayList<>(snapshot.size() + current.added.size());
+        Iterator<Entry> added = current.added.iterator();
+        Entry pending = added.hasNext() ? added.next() : null;
+        for (int i = 0; i < snapshot.size(); i++) {
+            Entry entry = snapshot.entry(i);
+            while (pending != null && pending.compareTo(entry) < 0) {
+                entries.add(pending);
+                pending = added.hasNext() ? added.next() : null;
+            }
+            if (!current.removed.contains(entry)) {
+                entries.add(entry);
+            }
+        }
+        while (pending != null) {
+            entries.add(pending);
+            pending = added.hasNext() ? added.next() : null;
+        }
+        state = new State(Snapshot.of(entries));
+    }
+
+    private static Entry nextMatch(Iterator<Entry> entries, String prefix) {
+        if (!entries.hasNext()) {
+            return null;
+        }
+        Entry entry = entries.next();
+        return entry.key.startsWith(prefix) ? entry : null;
+    }
+
+    private static Set<String> keysOf(UserSuggestion suggestion) {
+        if (suggestion == null) {
+            return Set.of();
+        }
+        Set<String> keys = new LinkedHashSet<>(3);
+        addKey(keys, suggestion.getLastName());
+        addKey(keys, suggestion.getFirstName());
+        addKey(keys, suggestion.getPatronymic());
+        return keys;
+    }
+
+    private static void addKey(Set<String> keys, String name) {
+        String key = normalize(name);
+        if (key != null) {
+            keys.add(key);
+        }
+    }
+
+    static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static String intern(Map<String, String> interned, String value) {
+        return value == null ? null : interned.computeIfAbsent(value, v -> v);
+    }
+
+    private record Entry(String key, long id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : Long.compare(id, other.id);
+        }
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new long[0]);
+
+        final String[] keys;
+        final long[] ids;
+
+        private Snapshot(String[] keys, long[] ids) {
+            this.keys = keys;
+            this.ids = ids;
+        }
+
+        static Snapshot of(List<Entry> sortedEntries) {
+            String[] keys = new String[sortedEntries.size()];
+            long[] ids = new long[sortedEntries.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = sortedEntries.get(i).key;
+                ids[i] = sortedEntries.get(i).id;
+            }
+            return new Snapshot(keys, ids);
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        int compare(int index, Entry entry) {
+            int byKey = keys[index].compareTo(entry.key);
+            return byKey != 0 ? byKey : Long.compare(ids[index], entry.id);
+        }
+
+        Entry entry(int index) {
+            return new Entry(keys[index], ids[index]);
+        }
+
+        /**
+         * Index of the first key that is not less than the prefix.
+         */
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A snapshot with the changes made since it was built. The delta is only modified under the write lock.
+     */
+    private static final class State {
+        final Snapshot snapshot;
+        final NavigableSet<Entry> added = new ConcurrentSkipListSet<>();
+        final Set<Entry> removed = ConcurrentHashMap.newKeySet();
+        // Changes since the snapshot was built, including ones that cancelled each other out
+        int deltaSize;
+
+        State(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        void add(Entry entry) {
+            if (!removed.remove(entry)) {
+                added.add(entry);
+            }
+            deltaSize++;
+        }
+
+        void remove(Entry entry) {
+            if (!added.remove(entry)) {
+                removed.add(entry);
+            }
+            deltaSize++;
+        }
+    }
+}
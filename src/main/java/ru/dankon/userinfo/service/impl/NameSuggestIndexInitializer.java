@@ -0,0 +1,26 @@
+package ru.dankon.userinfo.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.service.UserService;
+
+/**
+ * Loads the suggestion index with one streaming scan of {@code users}. Runs once all beans exist
+ * and before the web server starts, so no write can slip past the initial load.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NameSuggestIndexInitializer implements SmartInitializingSingleton {
+    private final UserService userService;
+    private final NameSuggestIndex nameSuggestIndex;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        nameSuggestIndex.rebuild(userService::streamAllUsers);
+        log.info("Built name suggestion index in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.dankon.userinfo.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load on its own thread,
+ * callers arriving while it runs wait for and share its result or exception. Nothing is kept
+ * once the load finishes, so this is not a cache.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executedCounter;
+    private final Counter sharedCounter;
+
+    public SingleFlight(String lookup, MeterRegistry meterRegistry) {
+        this.executedCounter = lookupCounter(meterRegistry, lookup, "executed");
+        this.sharedCounter = lookupCounter(meterRegistry, lookup, "shared");
+    }
+
+    public V execute(K key, Function<K, V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null) {
+            sharedCounter.increment();
+            return join(existing);
+        }
+        executedCounter.increment();
+        try {
+            V value = loader.apply(key);
+            loading.complete(value);
+            return value;
+        } catch (Throwable t) {
+            // Any failure, errors included, must release the callers waiting in join()
+            loading.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, loading);
+        }
+    }
+
+    /**
+     * Detaches a running load from later callers, which start a new one. Called after a write,
+     * so nobody arriving after it shares a result read before it.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    static Counter lookupCounter(MeterRegistry meterRegistry, String lookup, String result) {
+        return Counter.builder("users.lookup.queries")
+                .description("Database lookups run, and lookups answered by one already running")
+                .tag("lookup", lookup)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
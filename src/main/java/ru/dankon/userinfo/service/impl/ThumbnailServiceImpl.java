@@ -0,0 +1,197 @@
+package ru.dankon.userinfo.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.dankon.userinfo.config.properties.ThumbnailProperties;
+import ru.dankon.userinfo.service.PhotoStore;
+import ru.dankon.userinfo.service.ThumbnailService;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the configured photo sizes on a bounded background pool after an upload.
+ * A variant becomes visible only when it is completely written; until then the original is served.
+ * Dimensions are read from the image header first, so an image declaring more than
+ * {@code maxPixels} is never decoded, and a large one is decoded subsampled.
+ */
+@Slf4j
+@Service
+public class ThumbnailServiceImpl implements ThumbnailService {
+    private final PhotoStore photoStore;
+    private final List<Integer> sizes;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Timer processingTimer;
+    private final Counter rejectedCounter;
+
+    public ThumbnailServiceImpl(PhotoStore photoStore, ThumbnailProperties properties, MeterRegistry meterRegistry) {
+        this.photoStore = photoStore;
+        this.sizes = properties.sizes().stream().sorted().toList();
+        this.maxPixels = properties.maxPixels();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                properties.threads(), properties.threads(),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.queueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("photo.thumbnails.queue.depth", executor, e -> e.getQueue().size())
+                .description("Photos waiting for their variants to be generated")
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("photo.thumbnails.processing")
+                .description("Time to generate all variants of one photo")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("photo.thumbnails.rejected")
+                .description("Photos skipped because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void generateAsync(String relativePath) {
+        try {
+            executor.execute(() -> processingTimer.record(() -> generate(relativePath)));
+        } catch (RejectedExecutionException e) {
+            // The original keeps being served; the variants are only an optimization
+            rejectedCounter.increment();
+            log.warn("Thumbnail queue is full, skipping variants of {}", relativePath);
+        }
+    }
+
+    @Override
+    public Path resolveNearest(String relativePath, Integer size) {
+        if (size != null) {
+            for (int variantSize : sizes) {
+                if (variantSize < size) continue;
+                Path variant = photoStore.resolveVariant(relativePath, variantSize);
+                if (Files.isRegularFile(variant)) {
+                    return variant;
+                }
+            }
+        }
+        return photoStore.resolve(relativePath);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void generate(String relativePath) {
+        Path original = photoStore.resolve(relativePath);
+        String format = formatOf(original);
+        try (ImageInputStream input = format == null ? null : ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                log.debug("{} is not a supported image, no variants generated", relativePath);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                generate(relativePath, reader, format);
+            } finally {
+                reader.dispose();
+            }
+            if (!Files.exists(original)) {
+                // The photo was released while its variants were rendered
+                for (int size : sizes) {
+                    Files.deleteIfExists(photoStore.resolveVariant(relativePath, size));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to generate variants of {}", relativePath, e);
+        }
+    }
+
+    private void generate(String relativePath, ImageReader reader, String format) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if ((long) width * height > maxPixels) {
+            log.warn("{} is {}x{} pixels, more than {}; no variants generated", relativePath, width, height, maxPixels);
+            return;
+        }
+        // Variants larger than the original would only waste space
+        int longestSide = Math.max(width, height);
+        List<Integer> missing = sizes.stream()
+                .filter(size -> size < longestSide && !Files.exists(photoStore.resolveVariant(relativePath, size)))
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // Twice the largest variant is enough for a smooth downscale and keeps the decoded raster small
+        int step = Math.max(1, longestSide / (2 * missing.getLast()));
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(step, step, 0, 0);
+        BufferedImage source = reader.read(0, param);
+        for (int size : missing) {
+            writeVariant(resize(source, size), format, photoStore.resolveVariant(relativePath, size));
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int size) {
+        double scale = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static void writeVariant(BufferedImage image, String format, Path variant) throws IOException {
+        Path temporary = Files.createTempFile(variant.getParent(), "variant-", ".part");
+        try {
+            if (!ImageIO.write(image, format, temporary.toFile())) {
+                return;
+            }
+            Files.move(temporary, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String formatOf(Path file) {
+        String name = file.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        if (dotIndex == -1) return null;
+        String suffix = name.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+        return ImageIO.getImageWritersBySuffix(suffix).hasNext() ? suffix : null;
+    }
+}
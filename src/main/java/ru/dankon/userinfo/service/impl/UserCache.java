@@ -0,0 +1,100 @@
+package ru.dankon.userinfo.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.config.properties.UserCacheProperties;
+import ru.dankon.userinfo.model.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of users by id, bounded by an estimate of the memory its entries take.
+ * Holds detached copies and hands out copies, so callers can never modify a cached user.
+ * Hits, misses and evictions are published as the {@code users} cache metrics.
+ */
+@Component
+public class UserCache {
+    // Rough per-entry cost of the map node, the key and the User object without its strings
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    private static final int LOCAL_DATE_BYTES = 24;
+    private static final int INSTANT_BYTES = 24;
+
+    private final AsyncCache<Long, User> cache;
+    private final Counter executedCounter;
+    private final Counter sharedCounter;
+
+    public UserCache(UserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maxMemory().toBytes())
+                .weigher(UserCache::weigh)
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "users");
+        this.executedCounter = SingleFlight.lookupCounter(meterRegistry, "user", "executed");
+        this.sharedCounter = SingleFlight.lookupCounter(meterRegistry, "user", "shared");
+    }
+
+    /**
+     * Returns the cached user or loads it on the calling thread. The load runs outside of any
+     * map lock, so it does not pin a virtual thread while waiting for the database. A write that
+     * invalidates the id drops the pending load, so later readers never get a pre-write row.
+     * Concurrent misses of the same id share the pending load, like {@link SingleFlight}.
+     */
+    public User get(Long id, Function<Long, User> loader) {
+        CompletableFuture<User> loading = new CompletableFuture<>();
+        CompletableFuture<User> future = cache.get(id, (key, executor) -> loading);
+        if (future == loading) {
+            executedCounter.increment();
+            try {
+                loading.complete(copy(loader.apply(id)));
+            } catch (Throwable t) {
+                // Failed loads are removed from the cache, the next reader tries again; errors
+                // included, or readers sharing the load would wait forever
+                loading.completeExceptionally(t);
+                throw t;
+            }
+        } else if (!future.isDone()) {
+            sharedCounter.increment();
+        }
+        return copy(SingleFlight.join(future));
+    }
+
+    public User getIfPresent(Long id) {
+        CompletableFuture<User> future = cache.getIfPresent(id);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return copy(future.join());
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    private static User copy(User user) {
+        return user == null ? null : user.toBuilder().build();
+    }
+
+    private static int weigh(Long id, User user) {
+        return ENTRY_OVERHEAD_BYTES
+                + sizeOf(user.getLastName())
+                + sizeOf(user.getFirstName())
+                + sizeOf(user.getPatronymic())
+                + (user.getBirthDate() == null ? 0 : LOCAL_DATE_BYTES)
+                + sizeOf(user.getEmail())
+                + sizeOf(user.getPhoneNumber())
+                + sizeOf(user.getPhotoPath())
+                + (user.getUpdatedAt() == null ? 0 : INSTANT_BYTES);
+    }
+
+    private static int sizeOf(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length() * 2;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.dankon.userinfo.service.impl;
+
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.config.properties.ChangeFeedProperties;
+import ru.dankon.userinfo.dto.UserChangeEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The last {@code capacity} user changes of this instance, numbered by an increasing sequence.
+ * Publishing never waits for readers: a reader that falls further behind than the buffer is told so
+ * and continues from the oldest retained event.
+ */
+@Component
+public class UserChangeFeed {
+    private final UserChangeEvent[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    // Starts from the clock, so ids a client kept from before a restart are lower than the new ones
+    private final long firstSequence = System.currentTimeMillis() * 1000 + 1;
+    private long lastSequence = firstSequence - 1;
+
+    public UserChangeFeed(ChangeFeedProperties properties) {
+        this.ring = new UserChangeEvent[properties.capacity()];
+    }
+
+    public UserChangeEvent publish(UserChangeEvent.Type type, Long userId, Long version) {
+        lock.lock();
+        try {
+            UserChangeEvent event = new UserChangeEvent(++lastSequence, type, userId, version, Instant.now());
+            ring[slot(event.getSequence())] = event;
+            published.signalAll();
+            return event;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code max} events following {@code after}, waiting up to {@code timeout} for the first one.
+     */
+    public Replay read(long after, int max, Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (lastSequence <= after && nanos > 0) {
+                nanos = published.awaitNanos(nanos);
+            }
+            long oldest = Math.max(lastSequence - ring.length + 1, firstSequence);
+            // An id from the future can only come from another instance or a clock change
+            boolean missed = after + 1 < oldest || after > lastSequence;
+            long from = missed ? oldest : after + 1;
+            List<UserChangeEvent> events = new ArrayList<>();
+            long sequence = from;
+            for (; sequence <= lastSequence && events.size() < max; sequence++) {
+                events.add(ring[slot(sequence)]);
+            }
+            // After a miss the reader moves on to the oldest event even when none is retained yet,
+            // so it is told about the gap only once
+            return new Replay(events, missed, sequence - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) Math.floorMod(sequence, (long) ring.length);
+    }
+
+    /**
+     * @param missed whether events after the requested one were already overwritten
+     * @param resumeAfter the sequence to pass to the next {@link #read}
+     */
+    public record Replay(List<UserChangeEvent> events, boolean missed, long resumeAfter) {}
+}
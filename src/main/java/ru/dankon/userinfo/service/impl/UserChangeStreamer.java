@@ -0,0 +1,116 @@
+package ru.dankon.userinfo.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.dankon.userinfo.config.properties.ChangeFeedProperties;
+import ru.dankon.userinfo.dto.UserChangeEvent;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+import ru.dankon.userinfo.exceptions.TooManySubscribersException;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the change feed to SSE subscribers, each from its own virtual thread. A thread writes
+ * synchronously, so a slow client only holds back its own thread, never the publishers or other clients.
+ */
+@Slf4j
+@Component
+public class UserChangeStreamer {
+    private static final String RESET_EVENT = "reset";
+    private static final int EVENTS_PER_READ = 100;
+
+    private final UserChangeFeed feed;
+    private final ChangeFeedProperties properties;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("change-feed-", 0).factory());
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public UserChangeStreamer(UserChangeFeed feed, ChangeFeedProperties properties, MeterRegistry meterRegistry) {
+        this.feed = feed;
+        this.properties = properties;
+        Gauge.builder("users.change.feed.subscribers", subscribers, AtomicInteger::get)
+                .description("Open change feed connections")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts streaming the events after {@code lastEventId}, or only new ones when it is absent.
+     * When the requested events are no longer retained a {@code reset} event comes first,
+     * telling the client to reload what it holds.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        long after = parseLastEventId(lastEventId);
+        if (subscribers.incrementAndGet() > properties.maxSubscribers()) {
+            subscribers.decrementAndGet();
+            throw new TooManySubscribersException();
+        }
+
+        SseEmitter emitter = new SseEmitter(properties.maxConnectionTime().toMillis());
+        AtomicBoolean open = new AtomicBoolean(true);
+        Runnable close = () -> {
+            if (open.getAndSet(false)) {
+                subscribers.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(close);
+        emitter.onTimeout(close);
+        emitter.onError(e -> close.run());
+        executor.execute(() -> stream(emitter, after, open));
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void stream(SseEmitter emitter, long after, AtomicBoolean open) {
+        long cursor = after;
+        try {
+            while (open.get()) {
+                UserChangeFeed.Replay replay = feed.read(cursor, EVENTS_PER_READ, properties.heartbeat());
+                if (replay.missed()) {
+                    emitter.send(SseEmitter.event().name(RESET_EVENT).data(""));
+                }
+                cursor = replay.resumeAfter();
+                if (replay.events().isEmpty()) {
+                    // Keeps proxies from closing an idle connection and detects gone clients
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                for (UserChangeEvent event : replay.events()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.getSequence()))
+                            .name(event.getType().name())
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the emitter timed out
+            log.debug("Change feed subscriber disconnected: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
+    }
+
+    private long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return feed.lastSequence();
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Last-Event-ID must be an event id from this feed.");
+        }
+    }
+}
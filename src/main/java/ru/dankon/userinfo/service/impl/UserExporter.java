@@ -0,0 +1,142 @@
+package ru.dankon.userinfo.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.dto.DataFormat;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes users row by row as they come from the database cursor, so memory does not depend on the table size.
+ */
+@Component
+public class UserExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER =
+            "id,lastName,firstName,patronymic,birthDate,email,phoneNumber,photoPath,version,updatedAt\r\n";
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+
+    public UserExporter(UserService userService, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param updatedSince only users written at or after this instant, or all of them when {@code null}
+     * @param gzip         whether to compress the output; the compressor works on a fixed-size window
+     */
+    public void export(DataFormat format, Instant updatedSince, boolean gzip, OutputStream out) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        try (Writer text = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            switch (format) {
+                case CSV -> writeCsv(updatedSince, text);
+                case NDJSON -> writeNdjson(updatedSince, text);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeCsv(Instant updatedSince, Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        userService.streamAllUsers(updatedSince, user -> {
+            try {
+                out.write(String.valueOf(user.getId()));
+                writeCsvField(out, user.getLastName());
+                writeCsvField(out, user.getFirstName());
+                writeCsvField(out, user.getPatronymic());
+                writeCsvField(out, user.getBirthDate());
+                writeCsvField(out, user.getEmail());
+                writeCsvField(out, user.getPhoneNumber());
+                writeCsvField(out, user.getPhotoPath());
+                writeCsvField(out, user.getVersion());
+                writeCsvField(out, user.getUpdatedAt());
+                out.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeNdjson(Instant updatedSince, Writer out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) {
+            userService.streamAllUsers(updatedSince, user -> writeJsonLine(generator, user));
+        }
+    }
+
+    private void writeJsonLine(JsonGenerator generator, User user) {
+        try {
+            writer.writeValue(generator, user);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Instant parseUpdatedSince(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("updatedSince must be an ISO-8601 instant, e.g. 2025-01-31T00:00:00Z.");
+        }
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // RFC 4180: quote only values that need it, doubling the quotes inside
+    private static void writeCsvField(Writer out, Object value) throws IOException {
+        out.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,241 @@
+package ru.dankon.userinfo.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.config.properties.BatchProperties;
+import ru.dankon.userinfo.config.properties.ImportProperties;
+import ru.dankon.userinfo.dto.BatchItemResult;
+import ru.dankon.userinfo.dto.DataFormat;
+import ru.dankon.userinfo.dto.ImportSummary;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.util.CsvReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports users from a CSV or NDJSON stream in batches, reading one record at a time.
+ * Every batch goes through {@link UserService#createUsers}, so it gets the same set-based
+ * duplicate checks and, on PostgreSQL, a single {@code COPY}.
+ * <p>
+ * The report is NDJSON: a {@link BatchItemResult} for every rejected row, numbered from 1 after
+ * the CSV header, written as soon as its batch is done, and an {@link ImportSummary} as the last line.
+ * The first batch commits the response, so input that turns out to be unreadable later, such as
+ * an unterminated quote or a corrupt gzip stream, ends the import with an {@code INVALID} record
+ * for the row it stopped at and a summary that is not {@code complete}.
+ */
+@Component
+public class UserImporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Set<String> COLUMNS =
+            Set.of("lastName", "firstName", "patronymic", "birthDate", "email", "phoneNumber");
+    // Written by the export, assigned anew on import
+    private static final Set<String> IGNORED_COLUMNS = Set.of("id", "photoPath", "version", "updatedAt");
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Map<BatchItemResult.Status, Counter> rowCounters = new EnumMap<>(BatchItemResult.Status.class);
+
+    public UserImporter(UserService userService, ObjectMapper objectMapper, ImportProperties properties,
+                        BatchProperties batchProperties, MeterRegistry meterRegistry) {
+        if (properties.batchSize() < 1 || properties.batchSize() > batchProperties.maxSize()) {
+            throw new IllegalStateException("users.import.batch-size must be between 1 and users.batch.max-size");
+        }
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.batchSize = properties.batchSize();
+        for (BatchItemResult.Status status : BatchItemResult.Status.values()) {
+            rowCounters.put(status, Counter.builder("users.import.rows")
+                    .description("Imported rows by outcome")
+                    .tag("result", status.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public ImportSummary importUsers(DataFormat format, InputStream in, OutputStream report) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowSource rows = format == DataFormat.CSV ? csvRows(new CsvReader(reader)) : ndjsonRows(reader);
+
+        long start = System.nanoTime();
+        Map<BatchItemResult.Status, Long> totals = new EnumMap<>(BatchItemResult.Status.class);
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(report)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null)) {
+            List<User> batch = new ArrayList<>(batchSize);
+            List<Integer> rowNumbers = new ArrayList<>(batchSize);
+            int rowNumber = 0;
+            String failure = null;
+            while (true) {
+                Row row;
+                try {
+                    row = rows.next();
+                } catch (InvalidRequestException e) {
+                    failure = e.getReason();
+                    break;
+                } catch (IOException e) {
+                    failure = "Failed to read the input: " + e.getMessage();
+                    break;
+                }
+                if (row == null) {
+                    break;
+                }
+                rowNumber++;
+                if (row.error() != null) {
+                    write(generator, totals, BatchItemResult.invalid(rowNumber, row.error()));
+                    continue;
+                }
+                batch.add(row.user());
+                rowNumbers.add(rowNumber);
+                if (batch.size() == batchSize) {
+                    importBatch(batch, rowNumbers, generator, totals);
+                }
+            }
+            importBatch(batch, rowNumbers, generator, totals);
+            if (failure != null) {
+                rowNumber++;
+                write(generator, totals, BatchItemResult.invalid(rowNumber, "Import stopped: " + failure));
+            }
+
+            long durationNanos = Math.max(System.nanoTime() - start, 1);
+            long created = totals.getOrDefault(BatchItemResult.Status.CREATED, 0L);
+            long duplicates = totals.getOrDefault(BatchItemResult.Status.DUPLICATE, 0L);
+            long invalid = totals.getOrDefault(BatchItemResult.Status.INVALID, 0L);
+            ImportSummary summary = new ImportSummary(rowNumber, created, duplicates, invalid,
+                    durationNanos / 1_000_000, rowNumber * 1_000_000_000L / durationNanos, failure == null);
+            objectMapper.writeValue(generator, summary);
+            generator.writeRaw('\n');
+            return summary;
+        }
+    }
+
+    private void importBatch(List<User> batch, List<Integer> rowNumbers, JsonGenerator generator,
+                             Map<BatchItemResult.Status, Long> totals) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<BatchItemResult> results = userService.createUsers(batch);
+        for (int i = 0; i < results.size(); i++) {
+            BatchItemResult result = results.get(i);
+            result.setIndex(rowNumbers.get(i));
+            write(generator, totals, result);
+        }
+        generator.flush();
+        batch.clear();
+        rowNumbers.clear();
+    }
+
+    private void write(JsonGenerator generator, Map<BatchItemResult.Status, Long> totals,
+                       BatchItemResult result) throws IOException {
+        totals.merge(result.getStatus(), 1L, Long::sum);
+        rowCounters.get(result.getStatus()).increment();
+        if (result.getStatus() != BatchItemResult.Status.CREATED) {
+            objectMapper.writeValue(generator, result);
+            generator.writeRaw('\n');
+        }
+    }
+
+    private static RowSource csvRows(CsvReader csv) throws IOException {
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new InvalidRequestException("CSV must start with a header row.");
+        }
+        for (String column : header) {
+            if (!COLUMNS.contains(column) && !IGNORED_COLUMNS.contains(column)) {
+                throw new InvalidRequestException("Unknown CSV column: " + column);
+            }
+        }
+        return () -> {
+            List<String> record = csv.next();
+            while (record != null && record.size() == 1 && record.get(0).isEmpty()) {
+                record = csv.next();
+            }
+            if (record == null) {
+                return null;
+            }
+            if (record.size() != header.size()) {
+                return Row.invalid("Expected " + header.size() + " fields but got " + record.size() + ".");
+            }
+            User user = new User();
+            for (int i = 0; i < header.size(); i++) {
+                String value = record.get(i).isEmpty() ? null : record.get(i);
+                switch (header.get(i)) {
+                    case "lastName" -> user.setLastName(value);
+                    case "firstName" -> user.setFirstName(value);
+                    case "patronymic" -> user.setPatronymic(value);
+                    case "email" -> user.setEmail(value);
+                    case "phoneNumber" -> user.setPhoneNumber(value);
+                    case "birthDate" -> {
+                        try {
+                            user.setBirthDate(value == null ? null : LocalDate.parse(value));
+                        } catch (DateTimeParseException e) {
+                            return Row.invalid("birthDate must be a yyyy-MM-dd date.");
+                        }
+                    }
+                    default -> {
+                        // Ignored column
+                    }
+                }
+            }
+            return Row.of(user);
+        };
+    }
+
+    private RowSource ndjsonRows(BufferedReader reader) {
+        return () -> {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            try {
+                User user = objectMapper.readValue(line, User.class);
+                user.setId(null);
+                user.setPhotoPath(null);
+                user.setVersion(null);
+                user.setUpdatedAt(null);
+                return Row.of(user);
+            } catch (JsonProcessingException e) {
+                return Row.invalid("Malformed JSON: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private interface RowSource {
+        /**
+         * @return the next row, or {@code null} at the end of the input
+         */
+        Row next() throws IOException;
+    }
+
+    private record Row(User user, String error) {
+        static Row of(User user) {
+            return new Row(user, null);
+        }
+
+        static Row invalid(String error) {
+            return new Row(null, error);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.dankon.userinfo.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Postgres schema changes that {@code ddl-auto: update} cannot make. Runs after Hibernate has
+ * updated the schema and before the application accepts requests; every step is idempotent.
+ * <ul>
+ *     <li>converts {@code birth_date} from text to {@code date};</li>
+ *     <li>creates the {@code lower(name) text_pattern_ops} indexes that serve name prefix searches.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class UserSchemaMigration {
+    private static final String ISO_DATE = "'^\\d{4}-\\d{2}-\\d{2}$'";
+    private static final String RUSSIAN_DATE = "'^\\d{2}\\.\\d{2}\\.\\d{4}$'";
+    private static final List<DateTimeFormatter> BIRTH_DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("uuuu-MM-dd").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("dd.MM.uuuu").withResolverStyle(ResolverStyle.STRICT));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        convertBirthDate();
+        jdbcTemplate.execute("create index if not exists users_last_name_prefix_idx "
+                + "on users (lower(last_name) text_pattern_ops)");
+        jdbcTemplate.execute("create index if not exists users_first_name_prefix_idx "
+                + "on users (lower(first_name) text_pattern_ops)");
+    }
+
+    private void convertBirthDate() {
+        String type = jdbcTemplate.queryForObject(
+                "select data_type from information_schema.columns "
+                        + "where table_schema = current_schema() and table_name = 'users' and column_name = 'birth_date'",
+                String.class);
+        if (!"character varying".equals(type)) {
+            return;
+        }
+
+        // to_date fails the whole alter on a value like 31.02.1990, so clear everything that is not
+        // a real date first; values that do not even look like one become null in the alter itself
+        List<Object[]> invalid = jdbcTemplate.queryForList(
+                        "select distinct birth_date from users where birth_date is not null", String.class)
+                .stream()
+                .filter(value -> !value.isBlank() && parseBirthDate(value) == null)
+                .map(value -> new Object[]{value})
+                .toList();
+        if (!invalid.isEmpty()) {
+            int cleared = Arrays.stream(
+                            jdbcTemplate.batchUpdate("update users set birth_date = null where birth_date = ?", invalid))
+                    .filter(count -> count > 0)
+                    .sum();
+            log.warn("{} birth dates are not valid yyyy-MM-dd or dd.MM.yyyy dates and were cleared", cleared);
+        }
+        jdbcTemplate.execute("alter table users alter column birth_date type date using case "
+                + "when btrim(birth_date) ~ " + ISO_DATE + " then to_date(btrim(birth_date), 'YYYY-MM-DD') "
+                + "when btrim(birth_date) ~ " + RUSSIAN_DATE + " then to_date(btrim(birth_date), 'DD.MM.YYYY') "
+                + "end");
+        log.info("Converted users.birth_date to date");
+    }
+
+    /**
+     * @return the date of a legacy text value, or null unless it is a real date in one of the two formats
+     */
+    static LocalDate parseBirthDate(String value) {
+        String trimmed = value.trim();
+        for (DateTimeFormatter format : BIRTH_DATE_FORMATS) {
+            try {
+                return LocalDate.parse(trimmed, format);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        return null;
+    }
+}
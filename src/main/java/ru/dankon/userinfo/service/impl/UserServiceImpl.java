@@ -1,42 +1,133 @@
 package ru.dankon.userinfo.service.impl;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import ru.dankon.userinfo.config.properties.BatchProperties;
+import ru.dankon.userinfo.config.properties.PaginationProperties;
+import ru.dankon.userinfo.config.properties.SuggestProperties;
 import ru.dankon.userinfo.domain.UserRepository;
+import ru.dankon.userinfo.domain.UserSpecifications;
+import ru.dankon.userinfo.dto.BatchItemResult;
+import ru.dankon.userinfo.dto.CursorPage;
+import ru.dankon.userinfo.dto.UserChangeEvent;
 import ru.dankon.userinfo.dto.UserContactInfo;
+import ru.dankon.userinfo.dto.UserContactsResponse;
+import ru.dankon.userinfo.dto.UserPatch;
+import ru.dankon.userinfo.dto.UserSearchCriteria;
+import ru.dankon.userinfo.dto.UserSuggestion;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+import ru.dankon.userinfo.exceptions.PhotoNotFoundException;
 import ru.dankon.userinfo.exceptions.UserAlreadyExistsException;
 import ru.dankon.userinfo.exceptions.UserNotFoundException;
+import ru.dankon.userinfo.exceptions.UserVersionMismatchException;
 import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.PhotoStore;
+import ru.dankon.userinfo.service.ThumbnailService;
 import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.util.CursorUtil;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
+    private static final Map<String, String> IMAGE_EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp",
+            "image/bmp", ".bmp"
+    );
+
     private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final PaginationProperties paginationProperties;
+    private final BatchProperties batchProperties;
+    private final SuggestProperties suggestProperties;
+    private final UserCache userCache;
+    private final SingleFlight<Long, UserContactInfo> contactLookups;
+    private final PhotoStore photoStore;
+    private final ThumbnailService thumbnailService;
+    private final NameSuggestIndex nameSuggestIndex;
+    private final UserChangeFeed changeFeed;
+    private final UserBulkInserter bulkInserter;
+
+    @Override
+    public CursorPage<User> getUsers(String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        Long afterId = cursor == null ? Long.MIN_VALUE : CursorUtil.decode(cursor);
 
-    @Value("${file.storage.directory}")
-    private String storageDirectory;
+        // One extra row tells whether there is a next page without a count query
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+        return toPage(users, pageSize);
+    }
+
+    @Override
+    public CursorPage<User> searchUsers(UserSearchCriteria criteria, String cursor, Integer limit) {
+        UserSearchCriteria normalized = normalize(criteria);
+        int pageSize = resolvePageSize(limit);
+        Long afterId = cursor == null ? Long.MIN_VALUE : CursorUtil.decode(cursor);
 
-    @PostConstruct
-    public void init() throws IOException {
-        Path uploadPath = Paths.get(storageDirectory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        List<User> users = userRepository.findBy(
+                UserSpecifications.matching(normalized, afterId),
+                query -> query.sortBy(Sort.by("id")).limit(pageSize + 1).all());
+        return toPage(users, pageSize);
+    }
+
+    @Override
+    public List<UserSuggestion> suggestUsers(String query, Integer limit) {
+        int maxLimit = suggestProperties.maxLimit();
+        if (limit != null && (limit < 1 || limit > maxLimit)) {
+            throw new InvalidRequestException("Limit must be between 1 and " + maxLimit + ".");
         }
+        return nameSuggestIndex.suggest(query, limit == null ? suggestProperties.defaultLimit() : limit);
     }
 
     @Override
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<User> action) {
+        streamAllUsers(null, action);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Instant updatedSince, Consumer<User> action) {
+        try (Stream<User> users = updatedSince == null
+                ? userRepository.streamAllByOrderByIdAsc()
+                : userRepository.streamByUpdatedAtGreaterThanEqualOrderByIdAsc(updatedSince)) {
+            users.forEach(user -> {
+                action.accept(user);
+                // Keeps the persistence context empty so memory does not grow with the table
+                entityManager.detach(user);
+            });
+        }
     }
 
     @Override
@@ -46,62 +137,229 @@ public class UserServiceImpl implements UserService {
         } else if (userRepository.existsByPhoneNumber(user.getPhoneNumber())) {
             throw new UserAlreadyExistsException();
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        nameSuggestIndex.put(saved);
+        changeFeed.publish(UserChangeEvent.Type.CREATED, saved.getId(), saved.getVersion());
+        return saved;
+    }
+
+    @Override
+    public List<BatchItemResult> createUsers(List<User> users) {
+        if (users == null || users.isEmpty()) {
+            throw new InvalidRequestException("Users must be a non-empty list.");
+        }
+        if (users.size() > batchProperties.maxSize()) {
+            throw new InvalidRequestException(
+                    "No more than " + batchProperties.maxSize() + " users are allowed per request.");
+        }
+
+        // Two set-based lookups replace the per-user exists checks
+        Set<String> takenEmails = new HashSet<>(findExisting(users, User::getEmail,
+                userRepository::findExistingEmails));
+        Set<String> takenPhoneNumbers = new HashSet<>(findExisting(users, User::getPhoneNumber,
+                userRepository::findExistingPhoneNumbers));
+
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        List<Integer> pendingIndexes = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null || isBlank(user.getEmail()) || isBlank(user.getPhoneNumber())) {
+                results[i] = BatchItemResult.invalid(i, "Email and phone number are required.");
+            } else if (user.getId() != null) {
+                results[i] = BatchItemResult.invalid(i, "Id must not be set for a new user.");
+            } else if (takenEmails.contains(user.getEmail())
+                    || takenPhoneNumbers.contains(user.getPhoneNumber())) {
+                results[i] = BatchItemResult.duplicate(i);
+            } else {
+                // Later items of the same batch conflict with this one
+                takenEmails.add(user.getEmail());
+                takenPhoneNumbers.add(user.getPhoneNumber());
+                pendingIndexes.add(i);
+            }
+        }
+
+        insertBatch(users, pendingIndexes, results);
+        return Arrays.asList(results);
     }
 
     @Override
     public User getUserById(Long id) {
-        return userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
+        return userCache.get(id, this::loadUser);
     }
 
     @Override
     public UserContactInfo getUserContactInfoById(Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
+        User cached = userCache.getIfPresent(id);
+        if (cached != null) {
+            return UserContactInfo.from(cached);
+        }
+        return contactLookups.execute(id, key -> userRepository.findContactInfoById(key)
+                .orElseThrow(() -> new UserNotFoundException(key)));
+    }
 
-        return UserContactInfo.builder()
-                .lastName(user.getLastName())
-                .firstName(user.getFirstName())
-                .patronymic(user.getPatronymic())
-                .email(user.getEmail())
-                .phoneNumber(user.getPhoneNumber())
-                .build();
+    @Override
+    public UserContactsResponse getUserContactInfos(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+            throw new InvalidRequestException("Ids must be a non-empty list without nulls.");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > batchProperties.maxSize()) {
+            throw new InvalidRequestException(
+                    "No more than " + batchProperties.maxSize() + " ids are allowed per request.");
+        }
+
+        List<Long> uncachedIds = new ArrayList<>();
+        Map<Long, UserContactInfo> found = new HashMap<>();
+        for (Long id : uniqueIds) {
+            User cached = userCache.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, UserContactInfo.from(cached));
+            } else {
+                uncachedIds.add(id);
+            }
+        }
+        if (!uncachedIds.isEmpty()) {
+            found.putAll(userRepository.findContactInfoByIdIn(uncachedIds).stream()
+                    .collect(Collectors.toMap(UserContactInfo::getId, Function.identity())));
+        }
+
+        List<UserContactInfo> contacts = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            UserContactInfo contact = found.get(id);
+            if (contact != null) {
+                contacts.add(contact);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new UserContactsResponse(contacts, missingIds);
     }
 
     @Override
     public User updateUser(Long id, User user) {
-        if (!userRepository.existsById(id)) {
+        if (updateDetails(id, user, null) == 0) {
             throw new UserNotFoundException(id);
         }
+        evict(id);
+        User saved = getUserById(id);
+        nameSuggestIndex.put(saved);
+        changeFeed.publish(UserChangeEvent.Type.UPDATED, id, saved.getVersion());
+        return saved;
+    }
+
+    @Override
+    public long updateUser(Long id, User user, long expectedVersion) {
+        if (updateDetails(id, user, expectedVersion) == 0) {
+            // Only a failed update pays for telling a missing user from a stale version
+            if (!userRepository.existsById(id)) {
+                throw new UserNotFoundException(id);
+            }
+            throw new UserVersionMismatchException(id);
+        }
+        evict(id);
         user.setId(id);
-        return userRepository.save(user);
+        nameSuggestIndex.put(user);
+        changeFeed.publish(UserChangeEvent.Type.UPDATED, id, expectedVersion + 1);
+        return expectedVersion + 1;
+    }
+
+    @Override
+    public User patchUser(Long id, UserPatch patch) {
+        if (applyPatch(id, patch, null) == 0) {
+            throw new UserNotFoundException(id);
+        }
+        evict(id);
+        User saved = getUserById(id);
+        nameSuggestIndex.put(saved);
+        changeFeed.publish(UserChangeEvent.Type.UPDATED, id, saved.getVersion());
+        return saved;
+    }
+
+    @Override
+    public long patchUser(Long id, UserPatch patch, long expectedVersion) {
+        if (applyPatch(id, patch, expectedVersion) == 0) {
+            if (!userRepository.existsById(id)) {
+                throw new UserNotFoundException(id);
+            }
+            throw new UserVersionMismatchException(id);
+        }
+        evict(id);
+        UserSuggestion indexed = nameSuggestIndex.get(id);
+        if (patch.changesNames() && indexed != null) {
+            User names = User.builder()
+                    .id(id)
+                    .lastName(indexed.getLastName())
+                    .firstName(indexed.getFirstName())
+                    .patronymic(indexed.getPatronymic())
+                    .build();
+            patch.applyTo(names);
+            nameSuggestIndex.put(names);
+        }
+        changeFeed.publish(UserChangeEvent.Type.UPDATED, id, expectedVersion + 1);
+        return expectedVersion + 1;
     }
 
     @Override
     public void deleteUser(Long id) {
+        Optional<User> existing = userRepository.findById(id);
         userRepository.deleteById(id);
+        evict(id);
+        nameSuggestIndex.remove(id);
+        if (existing.isPresent()) {
+            changeFeed.publish(UserChangeEvent.Type.DELETED, id, null);
+            deletePhotoFile(existing.get().getPhotoPath());
+        }
     }
 
     @Override
     public User uploadPhoto(Long id, MultipartFile file) {
+        return replacePhoto(id, () -> saveFile(file));
+    }
+
+    @Override
+    public User uploadPhoto(Long id, InputStream content, long contentLength, String contentType) {
+        return replacePhoto(id, () -> photoStore.store(content, contentLength, extensionOf(contentType)));
+    }
+
+    private User replacePhoto(Long id, Supplier<String> storePhoto) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
-        if (user.getPhotoPath() != null) {
-            deletePhotoFile(user.getPhotoPath());
-        }
-
-        String relativePath = saveFile(file);
+        // The old reference is released last, so re-uploading the same photo keeps its file
+        String previousPath = user.getPhotoPath();
+        String relativePath = storePhoto.get();
         user.setPhotoPath(relativePath);
-        return userRepository.save(user);
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (RuntimeException e) {
+            deletePhotoFile(relativePath);
+            throw e;
+        }
+        evict(id);
+        changeFeed.publish(UserChangeEvent.Type.PHOTO_UPDATED, id, saved.getVersion());
+        deletePhotoFile(previousPath);
+        thumbnailService.generateAsync(relativePath);
+        return saved;
     }
 
     @Override
     public String getPhotoPath(Long id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
-        return user.getPhotoPath();
+        return userCache.get(id, this::loadUser).getPhotoPath();
+    }
+
+    @Override
+    public Path getPhotoFile(Long id, Integer size) {
+        String photoPath = getPhotoPath(id);
+        if (photoPath == null || photoPath.isBlank()) {
+            throw new PhotoNotFoundException(id);
+        }
+        Path file = thumbnailService.resolveNearest(photoPath, size);
+        if (!Files.isRegularFile(file)) {
+            throw new PhotoNotFoundException(id);
+        }
+        return file;
     }
 
     @Override
@@ -109,20 +367,28 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException(id));
 
-        deletePhotoFile(user.getPhotoPath());
+        String previousPath = user.getPhotoPath();
         user.setPhotoPath(null);
-        userRepository.save(user);
+        User saved = userRepository.save(user);
+        evict(id);
+        changeFeed.publish(UserChangeEvent.Type.PHOTO_DELETED, id, saved.getVersion());
+        deletePhotoFile(previousPath);
+    }
+
+    private void evict(Long id) {
+        userCache.invalidate(id);
+        contactLookups.forget(id);
+    }
+
+    private User loadUser(Long id) {
+        return userRepository.findById(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
     }
 
     private String saveFile(MultipartFile file) {
         try {
             String extension = getFileExtension(file.getOriginalFilename());
-            String filename = UUID.randomUUID() + extension;
-            Path filePath = Paths.get(storageDirectory).resolve(filename);
-
-            Files.copy(file.getInputStream(), filePath);
-
-            return Paths.get(storageDirectory).getFileName() + "/" + filename;
+            return photoStore.store(file.getInputStream(), file.getSize(), extension);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save file", e);
         }
@@ -130,11 +396,133 @@ public class UserServiceImpl implements UserService {
 
     private void deletePhotoFile(String relativePath) {
         if (relativePath == null || relativePath.isBlank()) return;
+        photoStore.release(relativePath);
+    }
+
+    private int updateDetails(Long id, User user, Long expectedVersion) {
         try {
-            Path filePath = Paths.get(storageDirectory).resolve(relativePath);
-            Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete file", e);
+            return userRepository.updateDetails(id, user, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            // Another user holds the email or phone number, same as for PATCH
+            throw new UserAlreadyExistsException();
+        }
+    }
+
+    private int applyPatch(Long id, UserPatch patch, Long expectedVersion) {
+        // Only the contacts the patch sets can collide with another user
+        if (patch.email() != null && userRepository.existsByEmailAndIdNot(patch.email(), id)
+                || patch.phoneNumber() != null && userRepository.existsByPhoneNumberAndIdNot(patch.phoneNumber(), id)) {
+            throw new UserAlreadyExistsException();
+        }
+        try {
+            return userRepository.patch(id, patch.changes(), expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw new UserAlreadyExistsException();
+        }
+    }
+
+    private void insertBatch(List<User> users, List<Integer> indexes, BatchItemResult[] results) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<User> pending = indexes.stream().map(users::get).toList();
+        try {
+            if (bulkInserter.supportsCopy()) {
+                bulkInserter.copy(pending);
+            } else {
+                userRepository.saveAll(pending);
+            }
+            for (int index : indexes) {
+                results[index] = BatchItemResult.created(index, users.get(index).getId());
+                nameSuggestIndex.put(users.get(index));
+                changeFeed.publish(UserChangeEvent.Type.CREATED, users.get(index).getId(), users.get(index).getVersion());
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent writer took some of the values after the check; find them one by one
+            for (int index : indexes) {
+                User user = users.get(index);
+                user.setId(null);
+                user.setVersion(null);
+                try {
+                    User saved = userRepository.save(user);
+                    results[index] = BatchItemResult.created(index, saved.getId());
+                    nameSuggestIndex.put(saved);
+                    changeFeed.publish(UserChangeEvent.Type.CREATED, saved.getId(), saved.getVersion());
+                } catch (DataIntegrityViolationException duplicate) {
+                    results[index] = BatchItemResult.duplicate(index);
+                }
+            }
+        }
+    }
+
+    private static Set<String> findExisting(List<User> users, Function<User, String> attribute,
+                                            Function<Set<String>, Set<String>> lookup) {
+        Set<String> values = users.stream()
+                .filter(Objects::nonNull)
+                .map(attribute)
+                .filter(value -> !isBlank(value))
+                .collect(Collectors.toSet());
+        return values.isEmpty() ? Set.of() : lookup.apply(values);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static CursorPage<User> toPage(List<User> users, int pageSize) {
+        if (users.size() <= pageSize) {
+            return new CursorPage<>(users, null);
+        }
+        List<User> page = users.subList(0, pageSize);
+        return new CursorPage<>(page, CursorUtil.encode(page.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * Trims the text criteria and requires at least one of them, so a search never turns into a full scan.
+     */
+    private static UserSearchCriteria normalize(UserSearchCriteria criteria) {
+        UserSearchCriteria normalized = UserSearchCriteria.builder()
+                .lastName(trimToNull(criteria.getLastName()))
+                .firstName(trimToNull(criteria.getFirstName()))
+                .email(trimToNull(criteria.getEmail()))
+                .phoneNumber(trimToNull(criteria.getPhoneNumber()))
+                .birthDateFrom(criteria.getBirthDateFrom())
+                .birthDateTo(criteria.getBirthDateTo())
+                .build();
+        if (normalized.getLastName() == null && normalized.getFirstName() == null
+                && normalized.getEmail() == null && normalized.getPhoneNumber() == null
+                && normalized.getBirthDateFrom() == null && normalized.getBirthDateTo() == null) {
+            throw new InvalidRequestException("At least one search criterion is required.");
+        }
+        if (normalized.getBirthDateFrom() != null && normalized.getBirthDateTo() != null
+                && normalized.getBirthDateFrom().isAfter(normalized.getBirthDateTo())) {
+            throw new InvalidRequestException("birthDateFrom must not be after birthDateTo.");
+        }
+        return normalized;
+    }
+
+    private static String trimToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return paginationProperties.defaultLimit();
+        }
+        if (limit < 1 || limit > paginationProperties.maxLimit()) {
+            throw new InvalidRequestException(
+                    "Limit must be between 1 and " + paginationProperties.maxLimit() + ".");
+        }
+        return limit;
+    }
+
+    private static String extensionOf(String contentType) {
+        if (contentType == null) return "";
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return IMAGE_EXTENSIONS.getOrDefault(mediaType.getType() + "/" + mediaType.getSubtype(), "");
+        } catch (InvalidMediaTypeException e) {
+            return "";
         }
     }
 
@@ -0,0 +1,33 @@
+package ru.dankon.userinfo.util;
+
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque URL-safe cursors, so clients never depend on the id format.
+ */
+public final class CursorUtil {
+    private static final String PREFIX = "id:";
+
+    private CursorUtil() {
+    }
+
+    public static String encode(Long id) {
+        byte[] raw = (PREFIX + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    public static Long decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(raw);
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor.");
+        }
+    }
+}
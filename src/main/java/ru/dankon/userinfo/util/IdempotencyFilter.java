@@ -0,0 +1,191 @@
+package ru.dankon.userinfo.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import ru.dankon.userinfo.config.properties.IdempotencyProperties;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes user creation and photo uploads safe to retry with an {@code Idempotency-Key} header.
+ * The first request with a key runs and its response is kept for {@code users.idempotency.ttl};
+ * retries get that response replayed, marked with {@code Idempotent-Replayed}, without reaching
+ * the service. Duplicates arriving while the first request still runs wait for its response.
+ * Keys are scoped to the user, method and path. Server errors are not kept, so the retry runs again.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final List<String> REPLAYED_HEADERS = List.of(HttpHeaders.ETAG, HttpHeaders.LOCATION);
+    private static final List<PathPattern> ROUTES = List.of(
+            PathPatternParser.defaultInstance.parse("/users"),
+            PathPatternParser.defaultInstance.parse("/users/{id}/photo")
+    );
+
+    private final Cache<Key, CompletableFuture<StoredResponse>> responses;
+    private final long waitTimeoutMillis;
+    private final Counter executedCounter;
+    private final Counter replayedCounter;
+    private final Counter conflictCounter;
+
+    public IdempotencyFilter(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.ttl())
+                .build();
+        this.waitTimeoutMillis = properties.waitTimeout().toMillis();
+        this.executedCounter = requestCounter(meterRegistry, "executed");
+        this.replayedCounter = requestCounter(meterRegistry, "replayed");
+        this.conflictCounter = requestCounter(meterRegistry, "conflict");
+        Gauge.builder("idempotency.keys", responses, Cache::estimatedSize)
+                .description("Idempotency keys with a kept or pending response")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(KEY_HEADER) == null) {
+            return true;
+        }
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method)) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return ROUTES.stream().noneMatch(route -> route.matches(path));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(KEY_HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    KEY_HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        Key key = new Key(principal(), request.getMethod(), request.getRequestURI(), idempotencyKey);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+        while (true) {
+            CompletableFuture<StoredResponse> pending = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(key, pending);
+            if (existing == null) {
+                executedCounter.increment();
+                execute(key, pending, request, response, filterChain);
+                return;
+            }
+            StoredResponse stored;
+            try {
+                stored = existing.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                conflictCounter.increment();
+                response.sendError(HttpStatus.CONFLICT.value(),
+                        "A request with this " + KEY_HEADER + " is still in progress");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+            if (stored != null) {
+                replayedCounter.increment();
+                replay(stored, response);
+                return;
+            }
+            // The first request failed and released the key; try to run this one instead
+        }
+    }
+
+    private void execute(
+            Key key,
+            CompletableFuture<StoredResponse> pending,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse stored = null;
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (wrapper.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                stored = StoredResponse.of(wrapper);
+            }
+        } finally {
+            if (stored == null) {
+                responses.asMap().remove(key, pending);
+            }
+            pending.complete(stored);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        for (int i = 0; i < REPLAYED_HEADERS.size(); i++) {
+            if (stored.headers()[i] != null) {
+                response.setHeader(REPLAYED_HEADERS.get(i), stored.headers()[i]);
+            }
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static String principal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "" : authentication.getName();
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("idempotency.requests")
+                .description("Requests with an idempotency key by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(String principal, String method, String path, String idempotencyKey) {}
+
+    private record StoredResponse(int status, String contentType, String[] headers, byte[] body) {
+
+        static StoredResponse of(ContentCachingResponseWrapper response) {
+            String[] headers = new String[REPLAYED_HEADERS.size()];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = response.getHeader(REPLAYED_HEADERS.get(i));
+            }
+            return new StoredResponse(response.getStatus(), response.getContentType(), headers,
+                    response.getContentAsByteArray());
+        }
+    }
+}
@@ -1,27 +1,44 @@
 package ru.dankon.userinfo.util;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
 @Component
-@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final JwtTokenCache tokenCache;
+    private final Timer cachedTimer;
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
+
+    public JwtFilter(JwtUtil jwtUtil,
+                     UserDetailsService userDetailsService,
+                     JwtTokenCache tokenCache,
+                     MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.tokenCache = tokenCache;
+        this.cachedTimer = verificationTimer(meterRegistry, "cached");
+        this.verifiedTimer = verificationTimer(meterRegistry, "verified");
+        this.rejectedTimer = verificationTimer(meterRegistry, "rejected");
+    }
 
     @Override
     protected void doFilterInternal(
@@ -36,26 +53,44 @@ public class JwtFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(7);
+        Timer.Sample sample = Timer.start();
         try {
-            String username = jwtUtil.getUsernameFromToken(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-            authentication.setDetails(
-                    new WebAuthenticationDetailsSource().buildDetails(request)
-            );
+            Authentication authentication = tokenCache.get(token);
+            if (authentication != null) {
+                sample.stop(cachedTimer);
+            } else {
+                authentication = authenticate(token);
+                sample.stop(verifiedTimer);
+            }
             SecurityContextHolder.getContext().setAuthentication(authentication);
         }
         catch (JwtException e) {
+            sample.stop(rejectedTimer);
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             return;
         }
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private Authentication authenticate(String token) {
+        Claims claims = jwtUtil.parseToken(token);
+        UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+
+        // Shared between requests through the cache, so it carries no per-request details
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+        tokenCache.put(token, authentication, claims.getExpiration());
+        return authentication;
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("jwt.verification")
+                .description("Time to turn a bearer token into an authentication")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
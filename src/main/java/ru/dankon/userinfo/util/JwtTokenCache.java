@@ -0,0 +1,81 @@
+package ru.dankon.userinfo.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers already verified tokens, so a reused token skips signature checks and user lookup.
+ * Entries are keyed by the SHA-256 of the whole token and never outlive the token's own expiration.
+ * Hits, misses and evictions are published as the {@code jwtTokens} cache metrics.
+ */
+@Component
+public class JwtTokenCache {
+
+    private final Cache<ByteBuffer, CachedAuthentication> cache;
+
+    public JwtTokenCache(@Value("${jwt.cache.maximum-size}") long maximumSize, MeterRegistry meterRegistry) {
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiration())
+                .recordStats()
+                .build(), "jwtTokens");
+    }
+
+    public Authentication get(String token) {
+        CachedAuthentication cached = cache.getIfPresent(digest(token));
+        return cached == null ? null : cached.authentication();
+    }
+
+    public void put(String token, Authentication authentication, Date expiration) {
+        if (expiration == null) {
+            return;
+        }
+        cache.put(digest(token), new CachedAuthentication(authentication, expiration.getTime()));
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return ByteBuffer.wrap(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CachedAuthentication(Authentication authentication, long expiresAtMillis) {
+    }
+
+    private static class UntilTokenExpiration implements Expiry<ByteBuffer, CachedAuthentication> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, CachedAuthentication value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, CachedAuthentication value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, CachedAuthentication value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
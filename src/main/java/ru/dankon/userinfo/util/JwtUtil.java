@@ -12,6 +12,9 @@ import java.util.Date;
 
 @Component
 public class JwtUtil {
+    private static final String TYPE_CLAIM = "typ";
+    private static final String REFRESH_TYPE = "refresh";
+    private static final String FAMILY_CLAIM = "fam";
 
     @Value("${jwt.secret}")
     private String secret;
@@ -19,11 +22,18 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.refresh.expiration}")
+    private Long refreshExpiration;
+
     private SecretKey key;
+    private JwtParser parser;
 
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
     }
 
     public String generateToken(String username) {
@@ -35,15 +45,56 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Issues a refresh token of the given rotation family. Only {@link #parseRefreshToken} accepts it.
+     */
+    public String generateRefreshToken(String username, long family, long tokenId) {
+        return Jwts.builder()
+                .subject(username)
+                .id(Long.toString(tokenId))
+                .claim(FAMILY_CLAIM, family)
+                .claim(TYPE_CLAIM, REFRESH_TYPE)
+                .issuedAt(Date.from(Instant.now()))
+                .expiration(Date.from(Instant.now().plusMillis(refreshExpiration)))
+                .signWith(key)
+                .compact();
+    }
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+
+    /**
+     * Verifies an access token. Refresh tokens are rejected, so they cannot be used as bearer tokens.
+     */
     public Claims parseToken(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
+        Claims claims = parser
+                .parseSignedClaims(token)
+                .getPayload();
+        if (REFRESH_TYPE.equals(claims.get(TYPE_CLAIM))) {
+            throw new JwtException("A refresh token is not an access token");
+        }
+        return claims;
+    }
+
+    public RefreshClaims parseRefreshToken(String token) {
+        Claims claims = parser
                 .parseSignedClaims(token)
                 .getPayload();
+        if (!REFRESH_TYPE.equals(claims.get(TYPE_CLAIM))) {
+            throw new JwtException("Not a refresh token");
+        }
+        try {
+            return new RefreshClaims(claims.getSubject(),
+                    claims.get(FAMILY_CLAIM, Long.class), Long.parseLong(claims.getId()));
+        } catch (RuntimeException e) {
+            throw new JwtException("Malformed refresh token", e);
+        }
     }
 
     public String getUsernameFromToken(String token) {
         return parseToken(token).getSubject();
     }
+
+    public record RefreshClaims(String username, long family, long tokenId) {}
 }
\ No newline at end of file
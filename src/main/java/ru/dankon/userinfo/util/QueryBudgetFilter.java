@@ -0,0 +1,75 @@
+package ru.dankon.userinfo.util;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.dankon.userinfo.config.properties.QueryBudgetProperties;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements of every request. Requests over the configured budget are logged;
+ * with {@code users.query-budget.expose-headers} the counts are also returned as response headers.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class QueryBudgetFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    private final QueryBudgetProperties properties;
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        QueryCounter.Counts counts = QueryCounter.start();
+        try {
+            if (properties.exposeHeaders()) {
+                // Headers must be in place before the body commits the response
+                HttpServletResponse wrapped = new OnCommittedResponseWrapper(response) {
+                    @Override
+                    protected void onResponseCommitted() {
+                        writeHeaders(response, counts);
+                    }
+                };
+                filterChain.doFilter(request, wrapped);
+                if (!response.isCommitted()) {
+                    writeHeaders(response, counts);
+                }
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            QueryCounter.stop();
+            checkBudget(request, counts);
+        }
+    }
+
+    private void checkBudget(HttpServletRequest request, QueryCounter.Counts counts) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(counts.nanos());
+        if (counts.statements() > properties.maxStatements() || millis > properties.maxTime().toMillis()) {
+            log.warn("{} {} ran {} SQL statements in {} ms, budget is {} statements and {} ms",
+                    request.getMethod(), request.getRequestURI(), counts.statements(), millis,
+                    properties.maxStatements(), properties.maxTime().toMillis());
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, QueryCounter.Counts counts) {
+        response.setHeader(STATEMENTS_HEADER, Integer.toString(counts.statements()));
+        response.setHeader(TIME_HEADER, Long.toString(TimeUnit.NANOSECONDS.toMillis(counts.nanos())));
+    }
+}
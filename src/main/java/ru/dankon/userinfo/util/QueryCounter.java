@@ -0,0 +1,74 @@
+package ru.dankon.userinfo.util;
+
+/**
+ * Counts the JDBC statements Hibernate executes on the current thread, and the time spent in them,
+ * while a count is open. A JDBC batch is one round trip and counts as one statement.
+ */
+public final class QueryCounter {
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static Counts start() {
+        Counts counts = new Counts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs the action with a fresh count and returns what it executed, e.g. to assert a query budget in tests.
+     * A count that was already open on this thread is restored afterwards.
+     */
+    public static Counts count(Runnable action) {
+        Counts outer = CURRENT.get();
+        Counts counts = start();
+        try {
+            action.run();
+            return counts;
+        } finally {
+            if (outer == null) {
+                stop();
+            } else {
+                CURRENT.set(outer);
+                outer.add(counts);
+            }
+        }
+    }
+
+    static Counts current() {
+        return CURRENT.get();
+    }
+
+    public static final class Counts {
+        private int statements;
+        private long nanos;
+        private long startedAt;
+
+        public int statements() {
+            return statements;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        void statementStarted() {
+            startedAt = System.nanoTime();
+        }
+
+        void statementEnded() {
+            statements++;
+            nanos += System.nanoTime() - startedAt;
+        }
+
+        private void add(Counts other) {
+            statements += other.statements;
+            nanos += other.nanos;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.dankon.userinfo.util;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Feeds {@link QueryCounter}; Hibernate creates one per session through {@code hibernate.session.events.auto}.
+ */
+public class QueryCountingListener implements SessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        started();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        ended();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        started();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        ended();
+    }
+
+    private static void started() {
+        QueryCounter.Counts counts = QueryCounter.current();
+        if (counts != null) {
+            counts.statementStarted();
+        }
+    }
+
+    private static void ended() {
+        QueryCounter.Counts counts = QueryCounter.current();
+        if (counts != null) {
+            counts.statementEnded();
+        }
+    }
+}
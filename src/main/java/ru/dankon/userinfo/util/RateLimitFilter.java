@@ -0,0 +1,138 @@
+package ru.dankon.userinfo.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import ru.dankon.userinfo.config.properties.RateLimitProperties;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Limits requests per client and route, after {@link JwtFilter} has established the principal.
+ * A client is the principal together with the client address, so callers sharing the admin account
+ * still get buckets of their own; anonymous requests, such as logins, are told apart by address only.
+ * Behind a proxy the address comes from {@code X-Forwarded-For}, which Tomcat honours only on requests
+ * from {@code server.tomcat.remoteip.internal-proxies}; a proxy listed there that passes on a client's
+ * own header lets that client pick its bucket. The first rule matching the path and method applies;
+ * requests matching no rule are not limited.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final boolean enabled;
+    private final List<Route> routes;
+    private final RateLimiter limiter = new RateLimiter(System::nanoTime);
+    private final ScheduledExecutorService sweeper;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        List<RateLimitProperties.Rule> rules = properties.rules() == null ? List.of() : properties.rules();
+        this.routes = rules.stream()
+                .map(rule -> Route.of(rule, meterRegistry))
+                .toList();
+        if (enabled && !routes.isEmpty()) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "rate-limit-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.sweepInterval().toMillis();
+            sweeper.scheduleWithFixedDelay(limiter::sweep, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+        Gauge.builder("rate.limit.buckets", limiter, RateLimiter::size)
+                .description("Tracked principal and route buckets")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (int i = 0; i < routes.size(); i++) {
+            Route route = routes.get(i);
+            if (route.matches(request.getMethod(), path)) {
+                long waitNanos = limiter.tryAcquire(clientOf(request), i, route.intervalNanos, route.toleranceNanos);
+                if (waitNanos > 0) {
+                    route.rejected.increment();
+                    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                    response.setHeader(HttpHeaders.RETRY_AFTER,
+                            Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+                    return;
+                }
+                break;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String clientOf(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName() + "@" + request.getRemoteAddr();
+        }
+        return "@" + request.getRemoteAddr();
+    }
+
+    private record Route(PathPattern pattern, Set<String> methods, long intervalNanos, long toleranceNanos,
+                         Counter rejected) {
+
+        static Route of(RateLimitProperties.Rule rule, MeterRegistry meterRegistry) {
+            if (rule.limit() < 1 || rule.period() == null || rule.period().isZero() || rule.period().isNegative()) {
+                throw new IllegalStateException("Rate limit for " + rule.pattern() + " needs a positive limit and period");
+            }
+            long interval = rule.period().toNanos() / rule.limit();
+            int burst = rule.burst() == null ? rule.limit() : rule.burst();
+            Set<String> methods = rule.methods() == null ? Set.of() : rule.methods().stream()
+                    .map(method -> method.toUpperCase(Locale.ROOT))
+                    .collect(Collectors.toUnmodifiableSet());
+            Counter rejected = Counter.builder("rate.limit.rejected")
+                    .description("Requests answered with 429")
+                    .tag("route", rule.pattern())
+                    .register(meterRegistry);
+            return new Route(PathPatternParser.defaultInstance.parse(rule.pattern()), methods,
+                    interval, Math.max(burst - 1, 0) * interval, rejected);
+        }
+
+        boolean matches(String method, PathContainer path) {
+            return (methods.isEmpty() || methods.contains(method)) && pattern.matches(path);
+        }
+    }
+}
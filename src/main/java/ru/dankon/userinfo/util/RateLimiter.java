@@ -0,0 +1,66 @@
+package ru.dankon.userinfo.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets implemented as GCRA: a bucket is a single {@code long}, the theoretical arrival time
+ * of the next request, updated with compare-and-set. A bucket whose time has passed is full and
+ * behaves exactly like a missing one, which is what makes {@link #sweep()} safe.
+ */
+public class RateLimiter {
+    private final ConcurrentHashMap<Key, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public RateLimiter(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @param intervalNanos  time it takes to earn one request, the period divided by the limit
+     * @param toleranceNanos how far ahead of the schedule requests may run, {@code (burst - 1) * interval}
+     * @return 0 if the request is allowed, otherwise how many nanoseconds until it would be
+     */
+    public long tryAcquire(String principal, int rule, long intervalNanos, long toleranceNanos) {
+        long now = nanoClock.getAsLong();
+        Key key = new Key(principal, rule);
+        AtomicLong arrival = buckets.get(key);
+        if (arrival == null) {
+            arrival = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = arrival.get();
+            long scheduled = Math.max(current, now);
+            if (scheduled - now > toleranceNanos) {
+                return scheduled - toleranceNanos - now;
+            }
+            if (arrival.compareAndSet(current, scheduled + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops full buckets. A request racing with the removal of its bucket may go uncounted,
+     * at most one per bucket and sweep.
+     *
+     * @return the number of buckets dropped
+     */
+    public int sweep() {
+        long now = nanoClock.getAsLong();
+        int removed = 0;
+        for (var entry : buckets.entrySet()) {
+            if (entry.getValue().get() - now <= 0 && buckets.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private record Key(String principal, int rule) {}
+}
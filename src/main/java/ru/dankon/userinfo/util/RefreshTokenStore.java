@@ -0,0 +1,109 @@
+package ru.dankon.userinfo.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.dankon.userinfo.exceptions.InvalidTokenException;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rotation state of refresh tokens: for every login (a token family) only the id of the latest
+ * refresh token, two longs per family. Refreshing swaps in a new id atomically; presenting an
+ * older token of a family means it was stolen or replayed, and the whole family is revoked.
+ */
+@Slf4j
+@Component
+public class RefreshTokenStore {
+    private final JwtUtil jwtUtil;
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<Long, Long> currentTokenIds;
+    private final Counter rotatedCounter;
+    private final Counter reusedCounter;
+    private final Counter rejectedCounter;
+
+    public RefreshTokenStore(JwtUtil jwtUtil,
+                             @Value("${jwt.refresh.maximum-size}") long maximumSize,
+                             MeterRegistry meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        // Sliding: an unused family disappears together with its last token
+        this.currentTokenIds = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(jwtUtil.getRefreshExpiration(), TimeUnit.MILLISECONDS)
+                .build();
+        this.rotatedCounter = refreshCounter(meterRegistry, "rotated");
+        this.reusedCounter = refreshCounter(meterRegistry, "reused");
+        this.rejectedCounter = refreshCounter(meterRegistry, "rejected");
+        Gauge.builder("auth.refresh.families", currentTokenIds, Cache::estimatedSize)
+                .description("Active refresh token families")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a new family after a password login.
+     */
+    public String issue(String username) {
+        long family = random.nextLong();
+        long tokenId = random.nextLong();
+        currentTokenIds.put(family, tokenId);
+        return jwtUtil.generateRefreshToken(username, family, tokenId);
+    }
+
+    /**
+     * Replaces a refresh token with the next one of its family.
+     *
+     * @throws InvalidTokenException if the token is not valid, expired, revoked or was already used
+     */
+    public Rotation rotate(String refreshToken) {
+        JwtUtil.RefreshClaims claims = parse(refreshToken);
+        long nextTokenId = random.nextLong();
+        if (!currentTokenIds.asMap().replace(claims.family(), claims.tokenId(), nextTokenId)) {
+            if (currentTokenIds.asMap().remove(claims.family()) != null) {
+                reusedCounter.increment();
+                log.warn("Refresh token reuse for user {}, revoked the token family", claims.username());
+            } else {
+                rejectedCounter.increment();
+            }
+            throw new InvalidTokenException();
+        }
+        rotatedCounter.increment();
+        return new Rotation(claims.username(),
+                jwtUtil.generateRefreshToken(claims.username(), claims.family(), nextTokenId));
+    }
+
+    /**
+     * Revokes the family of the token, so neither it nor any token issued from it can be refreshed.
+     */
+    public void revoke(String refreshToken) {
+        currentTokenIds.invalidate(parse(refreshToken).family());
+    }
+
+    private JwtUtil.RefreshClaims parse(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            rejectedCounter.increment();
+            throw new InvalidTokenException();
+        }
+        try {
+            return jwtUtil.parseRefreshToken(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedCounter.increment();
+            throw new InvalidTokenException();
+        }
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.refresh")
+                .description("Refresh token exchanges by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public record Rotation(String username, String refreshToken) {}
+}
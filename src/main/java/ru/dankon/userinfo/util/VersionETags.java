@@ -0,0 +1,35 @@
+package ru.dankon.userinfo.util;
+
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+
+/**
+ * Maps entity versions to strong entity tags ({@code "42"}) and back.
+ */
+public final class VersionETags {
+
+    private VersionETags() {
+    }
+
+    public static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header requires, or null when any version is acceptable.
+     * Weak tags never match for writes, and a list of tags is not supported.
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new InvalidRequestException("If-Match must be a single strong entity tag.");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("If-Match must be a single strong entity tag.");
+        }
+    }
+}
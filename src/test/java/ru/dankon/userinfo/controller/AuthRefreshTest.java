@@ -0,0 +1,91 @@
+package ru.dankon.userinfo.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.dankon.userinfo.support.AdminClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class AuthRefreshTest {
+    private static final String REFRESH_TOKEN = "X-Refresh-Token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void refresh_shouldIssueWorkingAccessTokenWithoutCheckingPassword() throws Exception {
+        String refreshToken = admin.login().getHeader(REFRESH_TOKEN);
+        long passwordChecks = passwordChecks();
+
+        MockHttpServletResponse refreshed = refresh(refreshToken)
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertThat(passwordChecks()).isEqualTo(passwordChecks);
+        assertThat(refreshed.getHeader(REFRESH_TOKEN)).isNotBlank().isNotEqualTo(refreshToken);
+        mockMvc.perform(get("/users").header("Authorization", "Bearer " + refreshed.getContentAsString()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void refresh_withReusedToken_shouldRevokeWholeFamily() throws Exception {
+        String first = admin.login().getHeader(REFRESH_TOKEN);
+        String second = refresh(first).andReturn().getResponse().getHeader(REFRESH_TOKEN);
+
+        refresh(first).andExpect(status().isUnauthorized());
+        refresh(second).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void refreshToken_shouldNotWorkAsBearerToken() throws Exception {
+        String refreshToken = admin.login().getHeader(REFRESH_TOKEN);
+
+        mockMvc.perform(get("/users").header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void accessToken_shouldNotWorkAsRefreshToken() throws Exception {
+        refresh(admin.login().getContentAsString()).andExpect(status().isUnauthorized());
+        refresh("garbage").andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logout_shouldRevokeRefreshToken() throws Exception {
+        String refreshToken = admin.login().getHeader(REFRESH_TOKEN);
+
+        mockMvc.perform(post("/auth/logout").header(REFRESH_TOKEN, refreshToken))
+                .andExpect(status().isNoContent());
+
+        refresh(refreshToken).andExpect(status().isUnauthorized());
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/auth/refresh").header(REFRESH_TOKEN, refreshToken));
+    }
+
+    private long passwordChecks() {
+        return meterRegistry.get("auth.password.encoder").tag("operation", "matches").timer().count();
+    }
+}
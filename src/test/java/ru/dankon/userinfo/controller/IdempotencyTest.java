@@ -0,0 +1,134 @@
+package ru.dankon.userinfo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.support.AdminClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.newUser;
+import static ru.dankon.userinfo.support.TestUsers.uniqueKey;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class IdempotencyTest {
+    private static final String KEY = "Idempotency-Key";
+    private static final String REPLAYED = "Idempotent-Replayed";
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void retriedCreate_shouldReplayFirstResponseWithoutQueries() throws Exception {
+        String key = uniqueKey();
+        String body = newUserJson();
+
+        MockHttpServletResponse first = admin.perform(createUser(body).header(KEY, key))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(REPLAYED))
+                .andReturn().getResponse();
+
+        MockHttpServletResponse retried = admin.perform(createUser(body).header(KEY, key))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(REPLAYED, "true"))
+                .andExpect(header().string("X-Sql-Statements", "0"))
+                .andReturn().getResponse();
+        assertThat(retried.getContentAsString()).isEqualTo(first.getContentAsString());
+
+        // Without a key the same request is a new attempt and runs into the created user
+        admin.perform(createUser(body)).andExpect(status().isConflict());
+    }
+
+    @Test
+    void retriedPhotoUpload_shouldNotStoreSecondFile() throws Exception {
+        User user = userService.createUser(newUser().build());
+        String key = uniqueKey();
+
+        String first = admin.perform(uploadPhoto(user.getId()).header(KEY, key))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String storedPath = userService.getPhotoPath(user.getId());
+
+        String retried = admin.perform(uploadPhoto(user.getId()).header(KEY, key))
+                .andExpect(status().isOk())
+                .andExpect(header().string(REPLAYED, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(retried).isEqualTo(first);
+        assertThat(userService.getPhotoPath(user.getId())).isEqualTo(storedPath);
+    }
+
+    @Test
+    void concurrentDuplicates_shouldRunOnce() throws Exception {
+        String key = uniqueKey();
+        String body = newUserJson();
+        List<Future<MockHttpServletResponse>> results = new ArrayList<>();
+        Callable<MockHttpServletResponse> create =
+                () -> admin.perform(createUser(body).header(KEY, key)).andReturn().getResponse();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(create));
+            }
+        }
+
+        int executed = 0;
+        for (Future<MockHttpServletResponse> result : results) {
+            MockHttpServletResponse response = result.get();
+            assertThat(response.getStatus()).isEqualTo(201);
+            if (response.getHeader(REPLAYED) == null) {
+                executed++;
+            }
+        }
+        assertThat(executed).isEqualTo(1);
+    }
+
+    @Test
+    void overlongKey_shouldBeRejected() throws Exception {
+        admin.perform(createUser(newUserJson()).header(KEY, "k".repeat(256)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String newUserJson() throws Exception {
+        return objectMapper.writeValueAsString(newUser().build());
+    }
+
+    private MockHttpServletRequestBuilder createUser(String body) {
+        return post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    private MockHttpServletRequestBuilder uploadPhoto(Long id) {
+        return put("/users/" + id + "/photo")
+                .contentType(MediaType.IMAGE_PNG)
+                .content(new byte[]{1, 2, 3, 4});
+    }
+}
@@ -0,0 +1,93 @@
+package ru.dankon.userinfo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.support.AdminClient;
+import ru.dankon.userinfo.util.QueryCounter;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.newUser;
+import static ru.dankon.userinfo.util.QueryBudgetFilter.STATEMENTS_HEADER;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class QueryBudgetTest {
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void getUser_shouldRunOneSelectAndNoneOnceCached() throws Exception {
+        User user = userService.createUser(newUser().build());
+
+        assertThat(statements(get("/users/" + user.getId()))).isEqualTo(1);
+        assertThat(statements(get("/users/" + user.getId()))).isZero();
+    }
+
+    @Test
+    void updateUser_shouldUpdateAndReloadInTwoStatements() throws Exception {
+        User user = userService.createUser(newUser().build());
+        user.setFirstName("Пётр");
+
+        int statements = statements(put("/users/" + user.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user)));
+
+        assertThat(statements).isEqualTo(2);
+    }
+
+    @Test
+    void conditionalUpdate_shouldRunOneStatement() throws Exception {
+        User user = userService.createUser(newUser().build());
+        user.setFirstName("Пётр");
+
+        int statements = statements(put("/users/" + user.getId())
+                .header("If-Match", "\"" + user.getVersion() + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user)));
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    void getUserContactInfos_shouldUseOneQueryForManyIds() {
+        List<Long> ids = List.of(
+                userService.createUser(newUser().build()).getId(),
+                userService.createUser(newUser().build()).getId(),
+                userService.createUser(newUser().build()).getId());
+
+        QueryCounter.Counts counts = QueryCounter.count(() -> userService.getUserContactInfos(ids));
+
+        assertThat(counts.statements()).isEqualTo(1);
+    }
+
+    private int statements(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = admin.perform(request)
+                .andExpect(status().is2xxSuccessful())
+                .andReturn();
+        return Integer.parseInt(result.getResponse().getHeader(STATEMENTS_HEADER));
+    }
+}
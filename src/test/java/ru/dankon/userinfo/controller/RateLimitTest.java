@@ -0,0 +1,90 @@
+package ru.dankon.userinfo.controller;
+
+import org.apache.catalina.valves.RemoteIpValve;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatWebServerFactoryCustomizer;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.dankon.userinfo.support.AdminClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "users.rate-limit.enabled=true",
+        "users.rate-limit.rules[0].pattern=/users/suggest",
+        "users.rate-limit.rules[0].methods=GET",
+        "users.rate-limit.rules[0].limit=1",
+        "users.rate-limit.rules[0].period=1h",
+        "users.rate-limit.rules[0].burst=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class RateLimitTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ServerProperties serverProperties;
+
+    @Test
+    void requestsOverLimit_shouldGetTooManyRequestsWithRetryAfter() throws Exception {
+        suggest().andExpect(status().isOk());
+        suggest().andExpect(status().isOk());
+
+        suggest()
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "3600"));
+
+        // Other routes, other addresses of the same user and anonymous clients have buckets of their own
+        admin.perform(get("/users"))
+                .andExpect(status().isOk());
+        suggest("10.0.0.2").andExpect(status().isOk());
+        mockMvc.perform(get("/users/suggest").param("q", "Пет"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void forwardedClientAddress_shouldNotBeTrustedFromUnlistedPeers() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+        new TomcatWebServerFactoryCustomizer(environment, serverProperties).customize(factory);
+
+        // Without this a client on a private network could pick a fresh bucket with X-Forwarded-For
+        assertThat(factory.getEngineValves())
+                .filteredOn(RemoteIpValve.class::isInstance)
+                .singleElement()
+                .extracting(valve -> ((RemoteIpValve) valve).getInternalProxies())
+                .isNull();
+    }
+
+    private ResultActions suggest() throws Exception {
+        return suggest("127.0.0.1");
+    }
+
+    private ResultActions suggest(String remoteAddr) throws Exception {
+        return admin.perform(get("/users/suggest")
+                .param("q", "Пет")
+                .with(request -> {
+                    request.setRemoteAddr(remoteAddr);
+                    return request;
+                }));
+    }
+}
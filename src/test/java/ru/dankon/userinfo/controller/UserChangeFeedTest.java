@@ -0,0 +1,72 @@
+package ru.dankon.userinfo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.service.impl.UserChangeFeed;
+import ru.dankon.userinfo.support.AdminClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.newUser;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserChangeFeedTest {
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserChangeFeed changeFeed;
+
+    @Test
+    void changes_shouldReplayEventsAfterLastEventId() throws Exception {
+        long lastEventId = changeFeed.lastSequence();
+        User user = userService.createUser(newUser().build());
+        userService.deleteUser(user.getId());
+
+        MockHttpServletResponse response = admin.perform(get("/users/changes")
+                        .header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        String body = awaitContent(response, "event:DELETED");
+        assertThat(body)
+                .contains("id:" + (lastEventId + 1) + "\nevent:CREATED\ndata:{")
+                .contains("\"userId\":" + user.getId())
+                .contains("id:" + (lastEventId + 2) + "\nevent:DELETED\n");
+        assertThat(response.getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Test
+    void changes_shouldRejectMalformedLastEventId() throws Exception {
+        admin.perform(get("/users/changes")
+                        .header("Last-Event-ID", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String body = response.getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            body = response.getContentAsString();
+        }
+        return body;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.dankon.userinfo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import ru.dankon.userinfo.service.impl.UserChangeFeed;
+import ru.dankon.userinfo.support.AdminClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Runs against a feed nothing is published to, like one a client reconnects to right after a restart.
+ */
+@SpringBootTest(properties = "users.change-feed.heartbeat=100ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserChangeResetTest {
+    private static final String RESET = "event:reset\n";
+    private static final String HEARTBEAT = ":heartbeat\n";
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private UserChangeFeed changeFeed;
+
+    @Test
+    void changes_withIdFromBeforeRestart_shouldResetOnceThenKeepHeartbeat() throws Exception {
+        assertResetOnce(changeFeed.lastSequence() - 1);
+    }
+
+    @Test
+    void changes_withIdFromFuture_shouldResetOnceThenKeepHeartbeat() throws Exception {
+        assertResetOnce(changeFeed.lastSequence() + 100);
+    }
+
+    private void assertResetOnce(long lastEventId) throws Exception {
+        MockHttpServletResponse response = admin.perform(get("/users/changes")
+                        .header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        Thread.sleep(550);
+
+        String body = response.getContentAsString();
+        assertThat(body).startsWith(RESET);
+        assertThat(count(body, RESET)).isEqualTo(1);
+        // One per heartbeat period, not one per loop iteration
+        assertThat(count(body, HEARTBEAT)).isBetween(1, 10);
+    }
+
+    private static int count(String body, String line) {
+        return body.split(line, -1).length - 1;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.dankon.userinfo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.support.AdminClient;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.newUser;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void csvExport_shouldBeGzippedAndQuoteSpecialCharacters() throws Exception {
+        User user = userService.createUser(newUser().lastName("Smith, \"Jr\"").build());
+
+        MvcResult result = export(get("/users/export").param("format", "csv").header("Accept-Encoding", "gzip"));
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.csv\""));
+        String csv = gunzip(result.getResponse().getContentAsByteArray());
+        assertThat(csv).startsWith("id,lastName,firstName,patronymic,birthDate,email,phoneNumber,photoPath,version,updatedAt\r\n");
+        assertThat(csv).contains("\r\n" + user.getId() + ",\"Smith, \"\"Jr\"\"\",Иван,,," + user.getEmail() + ",");
+    }
+
+    @Test
+    void ndjsonExport_withUpdatedSince_shouldReturnOnlyLaterUsersUncompressed() throws Exception {
+        User before = userService.createUser(newUser().lastName("Раньше").build());
+        Thread.sleep(5);
+        Instant since = Instant.now();
+        User after = userService.createUser(newUser().lastName("Позже").build());
+
+        MvcResult result = export(get("/users/export")
+                .param("format", "ndjson")
+                .param("updatedSince", since.toString()));
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE));
+        String ndjson = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(ndjson).contains("\"id\":" + after.getId() + ",").doesNotContain("\"id\":" + before.getId() + ",");
+        assertThat(ndjson.lines()).allMatch(line -> line.startsWith("{") && line.endsWith("}"));
+    }
+
+    @Test
+    void export_shouldRejectUnknownFormatAndBadTimestamp() throws Exception {
+        admin.perform(get("/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        admin.perform(get("/users/export").param("updatedSince", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MvcResult export(MockHttpServletRequestBuilder request) throws Exception {
+        return admin.perform(request).andReturn();
+    }
+
+    private static String gunzip(byte[] content) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
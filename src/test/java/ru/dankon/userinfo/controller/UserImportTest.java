@@ -0,0 +1,144 @@
+package ru.dankon.userinfo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import ru.dankon.userinfo.domain.UserRepository;
+import ru.dankon.userinfo.support.AdminClient;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.uniqueKey;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserImportTest {
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void csvImport_shouldInsertValidRowsAndReportRejectedOnes() throws Exception {
+        String key = uniqueKey();
+        String csv = "id,lastName,firstName,email,phoneNumber,birthDate\r\n"
+                + "17,\"Smith, Jr\",John," + key + "-1@example.com," + key + "-1,1990-05-01\r\n"
+                + ",Doe,Jane," + key + "-1@example.com," + key + "-2,\r\n"
+                + ",Roe,Rick,," + key + "-3,\r\n"
+                + ",Poe,Edgar," + key + "-4@example.com," + key + "-4,01.05.1990\r\n"
+                + ",Moe,Max," + key + "-5@example.com," + key + "-5,\r\n";
+
+        List<JsonNode> report = importUsers("text/csv", csv.getBytes(StandardCharsets.UTF_8), false);
+
+        assertThat(report).hasSize(4);
+        assertThat(report.get(0).get("index").asInt()).isEqualTo(4);
+        assertThat(report.get(0).get("status").asText()).isEqualTo("INVALID");
+        assertThat(report.subList(1, 3)).extracting(node -> node.get("index").asInt() + ":" + node.get("status").asText())
+                .containsExactly("2:DUPLICATE", "3:INVALID");
+        JsonNode summary = report.get(3);
+        assertThat(summary.get("rows").asLong()).isEqualTo(5);
+        assertThat(summary.get("created").asLong()).isEqualTo(2);
+        assertThat(summary.get("duplicates").asLong()).isEqualTo(1);
+        assertThat(summary.get("invalid").asLong()).isEqualTo(2);
+        assertThat(summary.has("rowsPerSecond")).isTrue();
+        assertThat(summary.get("complete").asBoolean()).isTrue();
+
+        assertThat(userRepository.existsByEmail(key + "-1@example.com")).isTrue();
+        assertThat(userRepository.existsByEmail(key + "-5@example.com")).isTrue();
+        assertThat(userRepository.findById(17L).map(user -> user.getEmail().startsWith(key)).orElse(false)).isFalse();
+    }
+
+    @Test
+    void gzippedNdjsonImport_shouldInsertRowsAndSkipMalformedLines() throws Exception {
+        String key = uniqueKey();
+        String ndjson = "{\"lastName\":\"Петров\",\"email\":\"" + key + "@example.com\",\"phoneNumber\":\"" + key + "\"}\n"
+                + "\n"
+                + "{\"lastName\":\n";
+
+        List<JsonNode> report = importUsers(MediaType.APPLICATION_NDJSON_VALUE, gzip(ndjson), true);
+
+        assertThat(report).hasSize(2);
+        assertThat(report.get(0).get("index").asInt()).isEqualTo(2);
+        assertThat(report.get(0).get("message").asText()).startsWith("Malformed JSON");
+        assertThat(report.get(1).get("created").asLong()).isEqualTo(1);
+        assertThat(userRepository.existsByEmail(key + "@example.com")).isTrue();
+    }
+
+    @Test
+    void csvImport_brokenAfterFirstBatch_shouldEndReportWithErrorAndSummary() throws Exception {
+        String key = uniqueKey();
+        StringBuilder csv = new StringBuilder("lastName,email,phoneNumber\r\n");
+        // One batch more than users.import.batch-size, so the report is committed before the error
+        for (int i = 1; i <= 1001; i++) {
+            csv.append("Row,").append(key).append('-').append(i).append("@example.com,")
+                    .append(key).append('-').append(i).append("\r\n");
+        }
+        csv.append("\"Unterminated,x@example.com,1\r\n");
+
+        List<JsonNode> report = importUsers("text/csv", csv.toString().getBytes(StandardCharsets.UTF_8), false);
+
+        assertThat(report).hasSize(2);
+        assertThat(report.get(0).get("index").asInt()).isEqualTo(1002);
+        assertThat(report.get(0).get("status").asText()).isEqualTo("INVALID");
+        assertThat(report.get(0).get("message").asText()).contains("quoted field");
+        JsonNode summary = report.get(1);
+        assertThat(summary.get("created").asLong()).isEqualTo(1001);
+        assertThat(summary.get("rows").asLong()).isEqualTo(1002);
+        assertThat(summary.get("complete").asBoolean()).isFalse();
+        assertThat(userRepository.existsByEmail(key + "-1001@example.com")).isTrue();
+    }
+
+    @Test
+    void csvImport_shouldRejectUnknownColumnBeforeImporting() throws Exception {
+        admin.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content("email,salary\r\na@example.com,1\r\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<JsonNode> importUsers(String contentType, byte[] body, boolean gzip) throws Exception {
+        var request = post("/users/import")
+                .contentType(contentType)
+                .content(body);
+        if (gzip) {
+            request.header("Content-Encoding", "gzip");
+        }
+        String report = admin.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return report.lines().map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+    }
+
+    private static byte[] gzip(String content) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,114 @@
+package ru.dankon.userinfo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.support.AdminClient;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.newUser;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserPatchTest {
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private UserService userService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userService.createUser(patchableUser());
+    }
+
+    @Test
+    void patch_shouldChangeOnlySuppliedFieldsAndClearNulls() throws Exception {
+        admin.perform(patchUser(user.getId(), "{\"firstName\":\"Пётр\",\"patronymic\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.firstName").value("Пётр"))
+                .andExpect(jsonPath("$.patronymic").doesNotExist())
+                .andExpect(jsonPath("$.lastName").value("Иванов"))
+                .andExpect(jsonPath("$.birthDate").value("1990-05-01"))
+                .andExpect(jsonPath("$.email").value(user.getEmail()));
+    }
+
+    @Test
+    void conditionalPatch_ofNames_shouldRunOneStatement() throws Exception {
+        String lastName = "Патч" + user.getId();
+        admin.perform(patchUser(user.getId(), "{\"lastName\":\"" + lastName + "\"}").header("If-Match", "\"0\""))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(header().string("X-Sql-Statements", "1"));
+
+        admin.perform(get("/users/suggest").param("q", lastName))
+                .andExpect(jsonPath("$[0].id").value(user.getId()));
+    }
+
+    @Test
+    void conditionalPatch_withStaleVersion_shouldFailPrecondition() throws Exception {
+        admin.perform(patchUser(user.getId(), "{\"lastName\":\"Петров\"}").header("If-Match", "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void patch_ofEmail_shouldRecheckOnlyThatColumn() throws Exception {
+        User other = userService.createUser(patchableUser());
+
+        admin.perform(patchUser(user.getId(), "{\"email\":\"" + other.getEmail() + "\"}"))
+                .andExpect(status().isConflict());
+        admin.perform(patchUser(user.getId(), "{\"email\":\"" + user.getEmail() + "\"}").header("If-Match", "\"0\""))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("X-Sql-Statements", "2"));
+    }
+
+    @Test
+    void patch_withUnknownOrInvalidField_shouldBeRejected() throws Exception {
+        admin.perform(patchUser(user.getId(), "{\"photoPath\":\"x\"}"))
+                .andExpect(status().isBadRequest());
+        admin.perform(patchUser(user.getId(), "{\"email\":null}"))
+                .andExpect(status().isBadRequest());
+        admin.perform(patchUser(user.getId(), "{\"birthDate\":\"01.05.1990\"}"))
+                .andExpect(status().isBadRequest());
+        admin.perform(patchUser(user.getId(), "{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void patch_ofMissingUser_shouldReturnNotFound() throws Exception {
+        admin.perform(patchUser(Long.MAX_VALUE, "{\"firstName\":\"Пётр\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    private static User patchableUser() {
+        return newUser()
+                .patronymic("Иванович")
+                .birthDate(LocalDate.of(1990, 5, 1))
+                .build();
+    }
+
+    private static MockHttpServletRequestBuilder patchUser(Long id, String body) {
+        return patch("/users/" + id)
+                .contentType("application/merge-patch+json")
+                .content(body);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.dankon.userinfo.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.support.AdminClient;
+import ru.dankon.userinfo.support.TestUsers;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserSearchTest {
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private UserService userService;
+
+    private String tag;
+
+    @BeforeEach
+    void setUp() {
+        // Unique last-name prefix, so rows from other tests sharing the database never match
+        tag = "T" + TestUsers.uniqueKey().substring(0, 8);
+    }
+
+    @Test
+    void search_shouldMatchLastNamePrefixIgnoringCase() throws Exception {
+        createUser(tag + "Иванов", "Иван", LocalDate.of(1990, 5, 1));
+        createUser(tag + "Ивашкин", "Пётр", LocalDate.of(1985, 1, 1));
+        createUser(tag + "Петров", "Иван", LocalDate.of(1990, 5, 1));
+
+        search("lastName=" + tag.toLowerCase() + "ива")
+                .andExpect(jsonPath("$.items[*].lastName", contains(tag + "Иванов", tag + "Ивашкин")));
+    }
+
+    @Test
+    void search_shouldTreatLikeWildcardsLiterally() throws Exception {
+        createUser(tag + "_a", "Иван", null);
+        createUser(tag + "ba", "Иван", null);
+
+        search("lastName=" + tag + "_")
+                .andExpect(jsonPath("$.items[*].lastName", contains(tag + "_a")));
+    }
+
+    @Test
+    void search_shouldCombineNameAndBirthDateRange() throws Exception {
+        createUser(tag + "Иванов", "Иван", LocalDate.of(1990, 5, 1));
+        createUser(tag + "Иванов", "Иван", LocalDate.of(2001, 5, 1));
+
+        search("lastName=" + tag + "&firstName=ив&birthDateFrom=1990-01-01&birthDateTo=1999-12-31")
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].birthDate").value("1990-05-01"));
+    }
+
+    @Test
+    void search_shouldPageWithCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            createUser(tag + i, "Иван", null);
+        }
+
+        String next = JsonPath.read(search("lastName=" + tag + "&limit=2")
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.next", notNullValue()))
+                .andReturn().getResponse().getContentAsString(), "$.next");
+
+        search("lastName=" + tag + "&limit=2&cursor=" + next)
+                .andExpect(jsonPath("$.items[*].lastName", contains(tag + 2)))
+                .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    void search_shouldRejectRequestWithoutCriteria() throws Exception {
+        admin.perform(get("/users/search"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void write_withOldBirthDateFormat_shouldBeRejectedAsBadRequest() throws Exception {
+        String key = TestUsers.uniqueKey();
+        String user = """
+                {"lastName":"Иванов","email":"%s@example.com","phoneNumber":"%s","birthDate":"01.05.1990"}
+                """.formatted(key, key);
+
+        admin.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(user))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("birthDate must be a yyyy-MM-dd date."));
+        admin.perform(post("/users/batch").contentType(MediaType.APPLICATION_JSON).content("[" + user + "]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("birthDate must be a yyyy-MM-dd date."));
+        admin.perform(put("/users/1").contentType(MediaType.APPLICATION_JSON).content(user))
+                .andExpect(status().isBadRequest());
+        admin.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content("{\"lastName\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Malformed request body."));
+    }
+
+    private ResultActions search(String query) throws Exception {
+        return admin.perform(get("/users/search?" + query))
+                .andExpect(status().isOk());
+    }
+
+    private void createUser(String lastName, String firstName, LocalDate birthDate) {
+        userService.createUser(TestUsers.newUser()
+                .lastName(lastName)
+                .firstName(firstName)
+                .birthDate(birthDate)
+                .build());
+    }
+}
@@ -0,0 +1,123 @@
+package ru.dankon.userinfo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.UserService;
+import ru.dankon.userinfo.support.AdminClient;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.dankon.userinfo.support.TestUsers.newUser;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(AdminClient.class)
+class UserVersioningTest {
+
+    @Autowired
+    private AdminClient admin;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userService.createUser(newUser().build());
+    }
+
+    @Test
+    void get_shouldReturnVersionAsETagAnd304WhenUnchanged() throws Exception {
+        admin.perform(get("/users/" + user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""));
+
+        admin.perform(get("/users/" + user.getId()).header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void put_withMatchingVersion_shouldReturnNewETag() throws Exception {
+        user.setFirstName("Пётр");
+
+        admin.perform(update("\"0\""))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1\""));
+
+        admin.perform(get("/users/" + user.getId()).header("If-None-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.firstName").value("Пётр"));
+    }
+
+    @Test
+    void put_withStaleVersion_shouldFailPreconditionAndKeepData() throws Exception {
+        user.setFirstName("Пётр");
+        admin.perform(update("\"0\"")).andExpect(status().isNoContent());
+
+        user.setFirstName("Олег");
+        admin.perform(update("\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        admin.perform(get("/users/" + user.getId()))
+                .andExpect(jsonPath("$.firstName").value("Пётр"));
+    }
+
+    @Test
+    void put_withWeakETag_shouldBeRejected() throws Exception {
+        admin.perform(update("W/\"0\""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void put_withoutIfMatch_shouldReturnUpdatedUserAndETag() throws Exception {
+        user.setFirstName("Пётр");
+
+        admin.perform(put("/users/" + user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.firstName").value("Пётр"));
+    }
+
+    @Test
+    void put_withEmailOfAnotherUser_shouldConflict() throws Exception {
+        User other = userService.createUser(newUser().lastName("Петров").build());
+        user.setEmail(other.getEmail());
+
+        admin.perform(update("\"0\"")).andExpect(status().isConflict());
+        admin.perform(put("/users/" + user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isConflict());
+    }
+
+    private MockHttpServletRequestBuilder update(String ifMatch) throws Exception {
+        return put("/users/" + user.getId())
+                .header("If-Match", ifMatch)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user));
+    }
+}
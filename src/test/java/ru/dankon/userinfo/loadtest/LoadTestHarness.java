@@ -0,0 +1,52 @@
+package ru.dankon.userinfo.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.util.FileSystemUtils;
+import ru.dankon.userinfo.UserInfoApplication;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Starts the application against the embedded H2 database and a temporary photo directory,
+ * then drives it with {@link LoadTestRunner} and prints per-endpoint latency percentiles.
+ * <p>
+ * Run with {@code mvn -Ploadtest verify}, tuning the load with {@code -Dloadtest.*} properties
+ * (see {@link LoadTestSettings}). Pass {@code -Dloadtest.url=http://host:port} to target
+ * an already running instance instead.
+ */
+public class LoadTestHarness {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        String url = System.getProperty("loadtest.url");
+        if (url != null) {
+            report(new LoadTestRunner(url, settings).run(
+                    System.getProperty("loadtest.username", "admin"),
+                    System.getProperty("loadtest.password", "admin")));
+            return;
+        }
+
+        Path photos = Files.createTempDirectory("user-info-loadtest");
+        SpringApplication application = new SpringApplication(UserInfoApplication.class);
+        application.setAdditionalProfiles("h2");
+        try (ConfigurableApplicationContext context = application.run(
+                "--server.port=0", "--file.storage.directory=" + photos, "--logging.level.root=WARN")) {
+            Environment environment = context.getEnvironment();
+            LoadTestRunner runner = new LoadTestRunner(
+                    "http://localhost:" + environment.getRequiredProperty("local.server.port"), settings);
+            report(runner.run(
+                    environment.getRequiredProperty("security.admin.username"),
+                    environment.getRequiredProperty("security.admin.password")));
+        } finally {
+            FileSystemUtils.deleteRecursively(photos);
+        }
+    }
+
+    private static void report(LoadTestReport report) {
+        System.out.println();
+        System.out.print(report.format());
+    }
+}
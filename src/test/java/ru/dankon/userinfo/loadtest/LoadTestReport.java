@@ -0,0 +1,86 @@
+package ru.dankon.userinfo.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and error counters per operation. Latencies are measured from the moment a request
+ * was scheduled to be sent, so time spent waiting for a free client counts against the server.
+ */
+public class LoadTestReport {
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private Duration elapsed = Duration.ZERO;
+
+    public LoadTestReport() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long latencyNanos, boolean success) {
+        recorders.get(operation).recordValue(latencyNanos);
+        if (!success) {
+            errors.get(operation).increment();
+        }
+    }
+
+    /**
+     * Drops everything recorded so far; called when the warmup phase ends.
+     */
+    void reset() {
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+    }
+
+    void finish(Duration elapsed) {
+        this.elapsed = elapsed;
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+    }
+
+    public long count(Operation operation) {
+        return histograms.get(operation).getTotalCount();
+    }
+
+    public long errors(Operation operation) {
+        return errors.get(operation).sum();
+    }
+
+    public double throughput(Operation operation) {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : count(operation) / seconds;
+    }
+
+    public double percentileMillis(Operation operation, double percentile) {
+        return histograms.get(operation).getValueAtPercentile(percentile) / 1e6;
+    }
+
+    public String format() {
+        StringBuilder table = new StringBuilder(String.format("%-26s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        long total = 0;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            long count = count(operation);
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            totalErrors += errors(operation);
+            table.append(String.format("%-26s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.endpoint(), count, errors(operation), throughput(operation),
+                    percentileMillis(operation, 50), percentileMillis(operation, 95),
+                    percentileMillis(operation, 99), histograms.get(operation).getMaxValue() / 1e6));
+        }
+        table.append(String.format("%-26s %8d %7d %9.1f%n", "total", total, totalErrors,
+                total / Math.max(elapsed.toNanos() / 1e9, 1e-9)));
+        return table.toString();
+    }
+}
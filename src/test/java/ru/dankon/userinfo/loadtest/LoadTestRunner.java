@@ -0,0 +1,248 @@
+package ru.dankon.userinfo.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are scheduled at a fixed rate regardless of how fast the server answers,
+ * and at most {@code clients} of them are in flight at once.
+ */
+public class LoadTestRunner {
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final int PHOTO_USERS = 50;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final LoadTestSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong createdUsers = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final int totalWeight;
+
+    private String authorization;
+    private long[] userIds;
+    private long[] photoUserIds;
+    private byte[] photo;
+
+    public LoadTestRunner(String baseUrl, LoadTestSettings settings) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+        this.totalWeight = settings.mix().values().stream().mapToInt(Integer::intValue).sum();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    public LoadTestReport run(String username, String password) throws IOException, InterruptedException {
+        try {
+            login(username, password);
+            seed();
+            LoadTestReport report = new LoadTestReport();
+            if (!settings.warmup().isZero()) {
+                generateLoad(report, settings.warmup());
+                report.reset();
+            }
+            report.finish(generateLoad(report, settings.duration()));
+            return report;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void login(String username, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(json(Map.of("username", username, "password", password)))
+                .build());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with status " + response.statusCode());
+        }
+        authorization = "Bearer " + response.body();
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        List<Long> ids = new ArrayList<>(settings.seedUsers());
+        for (int from = 0; from < settings.seedUsers(); from += SEED_BATCH_SIZE) {
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + SEED_BATCH_SIZE, settings.seedUsers()); i++) {
+                batch.add(user("seed" + i));
+            }
+            HttpResponse<String> response = send(authorized("/users/batch")
+                    .header("Content-Type", "application/json")
+                    .POST(json(batch))
+                    .build());
+            for (Map<String, Object> result : objectMapper.readValue(response.body(),
+                    new TypeReference<List<Map<String, Object>>>() { })) {
+                if ("CREATED".equals(result.get("status"))) {
+                    ids.add(((Number) result.get("id")).longValue());
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("Seeding did not create any users");
+        }
+        userIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        photo = samplePhoto();
+        photoUserIds = Arrays.copyOf(userIds, Math.min(PHOTO_USERS, userIds.length));
+        for (long id : photoUserIds) {
+            send(uploadPhoto(id));
+        }
+    }
+
+    private Duration generateLoad(LoadTestReport report, Duration duration) throws InterruptedException {
+        Semaphore clients = new Semaphore(settings.clients());
+        long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            clients.acquire();
+            Operation operation = pickOperation();
+            long intendedStart = scheduled;
+            executor.execute(() -> {
+                try {
+                    boolean success = execute(operation);
+                    report.record(operation, System.nanoTime() - intendedStart, success);
+                } catch (Exception e) {
+                    report.record(operation, System.nanoTime() - intendedStart, false);
+                } finally {
+                    clients.release();
+                }
+            });
+        }
+        clients.acquire(settings.clients());
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private boolean execute(Operation operation) throws IOException, InterruptedException {
+        long id = randomId(userIds);
+        HttpRequest request = switch (operation) {
+            case GET_USER -> authorized("/users/" + id).GET().build();
+            case GET_CONTACT -> authorized("/users/" + id + "/contact").GET().build();
+            case GET_CONTACTS -> authorized("/users/contacts")
+                    .header("Content-Type", "application/json")
+                    .POST(json(List.of(id, randomId(userIds), randomId(userIds))))
+                    .build();
+            case LIST_USERS -> authorized("/users?limit=50").GET().build();
+            case CREATE_USER -> authorized("/users")
+                    .header("Content-Type", "application/json")
+                    .POST(json(user("load" + createdUsers.incrementAndGet())))
+                    .build();
+            case UPDATE_USER -> {
+                int index = ThreadLocalRandom.current().nextInt(userIds.length);
+                Map<String, Object> user = user("seed" + index);
+                user.put("firstName", "Updated" + ThreadLocalRandom.current().nextInt(1000));
+                yield authorized("/users/" + userIds[index])
+                        .header("Content-Type", "application/json")
+                        .PUT(json(user))
+                        .build();
+            }
+            case UPLOAD_PHOTO -> uploadPhoto(randomId(photoUserIds));
+            case GET_PHOTO -> authorized("/users/" + randomId(photoUserIds) + "/photo").GET().build();
+        };
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        return status >= 200 && status < 400;
+    }
+
+    private Operation pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : settings.mix().entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable: roll is below the total weight");
+    }
+
+    private HttpRequest uploadPhoto(long id) {
+        return authorized("/users/" + id + "/photo")
+                .header("Content-Type", "image/png")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(photo))
+                .build();
+    }
+
+    private Map<String, Object> user(String key) {
+        int number = Math.floorMod(key.hashCode(), 10_000_000);
+        Map<String, Object> user = new HashMap<>();
+        user.put("lastName", "Loadtest");
+        user.put("firstName", key);
+        user.put("patronymic", "Harness");
+        user.put("birthDate", "1990-01-01");
+        user.put("email", key + "-" + runId + "@loadtest.local");
+        user.put("phoneNumber", runId + "-" + key + "-" + number);
+        return user;
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(uri(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", authorization);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.BodyPublisher json(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static long randomId(long[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private static byte[] samplePhoto() throws IOException {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLUE, 640, 480, Color.ORANGE));
+        graphics.fillRect(0, 0, 640, 480);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
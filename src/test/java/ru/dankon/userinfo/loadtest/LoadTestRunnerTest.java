@@ -0,0 +1,41 @@
+package ru.dankon.userinfo.loadtest;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+@Tag("load")
+class LoadTestRunnerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void shortRunHitsEveryEndpointWithoutErrors() throws Exception {
+        Map<Operation, Integer> evenMix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            evenMix.put(operation, 1);
+        }
+        LoadTestSettings settings = new LoadTestSettings(
+                100, Duration.ofSeconds(2), Duration.ZERO, 8, 20, evenMix);
+
+        LoadTestReport report = new LoadTestRunner("http://localhost:" + port, settings).run("admin", "admin");
+
+        for (Operation operation : Operation.values()) {
+            assertThat(report.count(operation)).as("%s executions", operation).isPositive();
+            assertThat(report.errors(operation)).as("%s errors", operation).isZero();
+            assertThat(report.percentileMillis(operation, 99))
+                    .isGreaterThanOrEqualTo(report.percentileMillis(operation, 50));
+        }
+    }
+}
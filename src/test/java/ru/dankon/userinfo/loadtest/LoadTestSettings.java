@@ -0,0 +1,53 @@
+package ru.dankon.userinfo.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load profile of a harness run. Every value can be overridden with a {@code loadtest.*} system property,
+ * e.g. {@code -Dloadtest.rate=500 -Dloadtest.duration=PT1M -Dloadtest.mix=GET_USER=80,CREATE_USER=20}.
+ */
+public record LoadTestSettings(
+        int rate,
+        Duration duration,
+        Duration warmup,
+        int clients,
+        int seedUsers,
+        Map<Operation, Integer> mix) {
+
+    public static final String DEFAULT_MIX = "GET_USER=30,GET_CONTACT=20,GET_CONTACTS=10,LIST_USERS=10,"
+            + "CREATE_USER=10,UPDATE_USER=10,UPLOAD_PHOTO=5,GET_PHOTO=5";
+
+    public LoadTestSettings {
+        if (rate <= 0 || clients <= 0 || seedUsers <= 0) {
+            throw new IllegalArgumentException("Rate, clients and seed users must be positive.");
+        }
+        if (mix.values().stream().anyMatch(weight -> weight < 0)
+                || mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Mix weights must be non-negative and add up to a positive number.");
+        }
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.rate", 200),
+                Duration.parse(System.getProperty("loadtest.duration", "PT30S")),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT5S")),
+                Integer.getInteger("loadtest.clients", 64),
+                Integer.getInteger("loadtest.seed-users", 1000),
+                parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX)));
+    }
+
+    public static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entry must look like OPERATION=weight: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.dankon.userinfo.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoadTestSettingsTest {
+
+    @Test
+    void parseMixReadsWeightsPerOperation() {
+        Map<Operation, Integer> mix = LoadTestSettings.parseMix("GET_USER=3, CREATE_USER=1");
+
+        assertThat(mix).isEqualTo(Map.of(Operation.GET_USER, 3, Operation.CREATE_USER, 1));
+    }
+}
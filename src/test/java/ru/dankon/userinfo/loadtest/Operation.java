@@ -0,0 +1,25 @@
+package ru.dankon.userinfo.loadtest;
+
+/**
+ * Endpoints exercised by the load harness; latencies are reported per operation.
+ */
+public enum Operation {
+    GET_USER("GET /users/{id}"),
+    GET_CONTACT("GET /users/{id}/contact"),
+    GET_CONTACTS("POST /users/contacts"),
+    LIST_USERS("GET /users"),
+    CREATE_USER("POST /users"),
+    UPDATE_USER("PUT /users/{id}"),
+    UPLOAD_PHOTO("PUT /users/{id}/photo"),
+    GET_PHOTO("GET /users/{id}/photo");
+
+    private final String endpoint;
+
+    Operation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+}
@@ -0,0 +1,194 @@
+package ru.dankon.userinfo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import ru.dankon.userinfo.config.properties.ThumbnailProperties;
+import ru.dankon.userinfo.domain.PhotoBlobRepository;
+import ru.dankon.userinfo.exceptions.PhotoTooLargeException;
+import ru.dankon.userinfo.service.impl.ContentAddressedPhotoStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentAddressedPhotoStoreTest {
+    private static final String SAMPLE_SHA256 =
+            "e8bd24b6d6dc36c3d2d5d5e2cf8b76b6c4e0a93e2ca79a4c3ca89a6d5b5b3e8f";
+
+    @TempDir
+    private Path storage;
+
+    @Mock
+    private PhotoBlobRepository photoBlobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ThumbnailProperties thumbnailProperties = new ThumbnailProperties(List.of(64), 1, 1, 1_000_000);
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ContentAddressedPhotoStore photoStore;
+
+    private final Map<String, Long> blobs = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(photoStore, "storageDirectory", storage.toString());
+        ReflectionTestUtils.setField(photoStore, "maxUploadSize", DataSize.ofBytes(16));
+        photoStore.init();
+
+        // Same outcomes as the statements against a database
+        lenient().when(photoBlobRepository.incrementRefCount(anyString())).thenAnswer(invocation ->
+                blobs.computeIfPresent(invocation.getArgument(0), (path, count) -> count + 1) == null ? 0 : 1);
+        lenient().when(photoBlobRepository.insertIfAbsent(anyString())).thenAnswer(invocation ->
+                blobs.putIfAbsent(invocation.getArgument(0), 1L) == null ? 1 : 0);
+        lenient().when(photoBlobRepository.decrementUnlessLast(anyString())).thenAnswer(invocation -> {
+            Long count = blobs.get(invocation.<String>getArgument(0));
+            if (count == null || count <= 1) return 0;
+            blobs.put(invocation.getArgument(0), count - 1);
+            return 1;
+        });
+        lenient().when(photoBlobRepository.deleteIfLast(anyString())).thenAnswer(invocation -> {
+            Long count = blobs.get(invocation.<String>getArgument(0));
+            if (count == null || count > 1) return 0;
+            blobs.remove(invocation.<String>getArgument(0));
+            return 1;
+        });
+        lenient().when(photoBlobRepository.existsById(anyString()))
+                .thenAnswer(invocation -> blobs.containsKey(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    void store_shouldPlaceFileUnderShardedContentHash() {
+        String path = photoStore.store(avatar(), -1, ".JPG");
+
+        assertThat(path).matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}\\.jpg");
+        assertThat(path).startsWith(path.substring(6, 8) + "/" + path.substring(8, 10) + "/");
+        assertThat(photoStore.resolve(path)).exists().hasContent("default avatar");
+        assertThat(storage.resolve("tmp")).isEmptyDirectory();
+    }
+
+    @Test
+    void store_shouldKeepOneFileForIdenticalContent() {
+        String first = photoStore.store(avatar(), -1, ".jpg");
+        String second = photoStore.store(avatar(), -1, ".jpg");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(blobs.get(first)).isEqualTo(2);
+    }
+
+    @Test
+    void store_shouldRejectDeclaredSizeAboveLimitWithoutReading() {
+        ByteArrayInputStream content = avatar();
+
+        assertThatThrownBy(() -> photoStore.store(content, 17, ".jpg"))
+                .isInstanceOf(PhotoTooLargeException.class);
+        assertThat(content.available()).isEqualTo(14);
+    }
+
+    @Test
+    void store_shouldStopStreamingOnceLimitIsExceeded() {
+        ByteArrayInputStream content = new ByteArrayInputStream(new byte[64]);
+
+        assertThatThrownBy(() -> photoStore.store(content, -1, ".jpg"))
+                .isInstanceOf(PhotoTooLargeException.class);
+        assertThat(storage.resolve("tmp")).isEmptyDirectory();
+        verifyNoInteractions(photoBlobRepository);
+    }
+
+    @Test
+    void release_shouldDeleteFileOnlyWithLastReference() {
+        String path = photoStore.store(avatar(), -1, ".jpg");
+        photoStore.store(avatar(), -1, ".jpg");
+
+        photoStore.release(path);
+        assertThat(photoStore.resolve(path)).exists();
+
+        photoStore.release(path);
+        assertThat(photoStore.resolve(path)).doesNotExist();
+        assertThat(blobs).isEmpty();
+    }
+
+    @Test
+    void release_ofUncountedPath_shouldKeepFile() {
+        String path = photoStore.store(avatar(), -1, ".jpg");
+        blobs.clear();
+
+        photoStore.release(path);
+
+        assertThat(photoStore.resolve(path)).exists();
+    }
+
+    @Test
+    void release_shouldDeleteVariantsWithLastReference() throws IOException {
+        String path = photoStore.store(avatar(), -1, ".jpg");
+        Path variant = Files.writeString(photoStore.resolveVariant(path, 64), "small");
+
+        photoStore.release(path);
+
+        assertThat(variant).doesNotExist();
+        assertThat(variant.getFileName().toString()).endsWith("_64.jpg");
+    }
+
+    @Test
+    void release_shouldDeleteLegacyFileDirectly() throws IOException {
+        Path legacy = Files.writeString(storage.resolve("1b4e28ba-2fa1-11d2-883f-0016d3cca427.jpg"), "old");
+
+        photoStore.release("user-photos/" + legacy.getFileName());
+
+        assertThat(legacy).doesNotExist();
+        verifyNoInteractions(photoBlobRepository);
+    }
+
+    @Test
+    void storeAndRelease_shouldCountBytesWrittenAndDeleted() throws IOException {
+        String path = photoStore.store(avatar(), -1, ".jpg");
+        Files.writeString(photoStore.resolveVariant(path, 64), "small");
+
+        photoStore.release(path);
+
+        assertThat(meterRegistry.get("photo.store.bytes").tag("operation", "write").counter().count())
+                .isEqualTo(14);
+        assertThat(meterRegistry.get("photo.store.bytes").tag("operation", "delete").counter().count())
+                .isEqualTo(19);
+        assertThat(meterRegistry.get("photo.store.duration").tag("operation", "write").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("photo.store.duration").tag("operation", "delete").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void resolve_shouldNotLeaveStorageDirectoryForLegacyPaths() {
+        assertThat(photoStore.resolve("../../etc/passwd")).isEqualTo(storage.resolve("passwd"));
+        assertThat(photoStore.isLegacy("ab/cd/" + SAMPLE_SHA256 + ".jpg")).isFalse();
+    }
+
+    private static ByteArrayInputStream avatar() {
+        return new ByteArrayInputStream("default avatar".getBytes(StandardCharsets.UTF_8));
+    }
+}
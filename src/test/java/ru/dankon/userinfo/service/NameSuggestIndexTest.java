@@ -0,0 +1,102 @@
+package ru.dankon.userinfo.service;
+
+import org.junit.jupiter.api.Test;
+import ru.dankon.userinfo.config.properties.SuggestProperties;
+import ru.dankon.userinfo.dto.UserSuggestion;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.impl.NameSuggestIndex;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NameSuggestIndexTest {
+    private final NameSuggestIndex index = new NameSuggestIndex(new SuggestProperties(10, 50, 3));
+
+    @Test
+    void suggest_shouldMatchAnyNameByPrefixIgnoringCaseAndYo() {
+        index.rebuild(load(
+                user(1, "Иванов", "Пётр", "Сергеевич"),
+                user(2, "Сидоров", "Иван", "Петрович"),
+                user(3, "Смирнов", "Олег", "Олегович")));
+
+        assertThat(ids(index.suggest("ИВ", 10))).containsExactly(2L, 1L);
+        assertThat(ids(index.suggest("петр", 10))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void suggest_shouldReturnEachUserOnceAndStopAtLimit() {
+        index.rebuild(load(
+                user(1, "Анна", "Анна", "Андреевна"),
+                user(2, "Андреев", "Олег", null),
+                user(3, "Антонов", "Иван", null)));
+
+        assertThat(ids(index.suggest("ан", 10))).containsExactly(2L, 1L, 3L);
+        assertThat(ids(index.suggest("ан", 2))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void suggest_shouldMergeDeltaWithSnapshotInNameOrder() {
+        index.rebuild(load(user(1, "Борисов", "Олег", null), user(3, "Быков", "Олег", null)));
+
+        index.put(user(2, "Белов", "Олег", null));
+
+        assertThat(ids(index.suggest("б", 10))).containsExactly(2L, 1L, 3L);
+    }
+
+    @Test
+    void put_shouldReplacePreviousNamesOfUser() {
+        index.rebuild(load(user(1, "Иванов", "Олег", null)));
+
+        index.put(user(1, "Петров", "Олег", null));
+
+        assertThat(index.suggest("ив", 10)).isEmpty();
+        assertThat(index.suggest("пет", 10)).extracting(UserSuggestion::getLastName).containsExactly("Петров");
+    }
+
+    @Test
+    void remove_shouldHideUserFromSnapshot() {
+        index.rebuild(load(user(1, "Иванов", "Олег", null), user(2, "Ивлев", "Олег", null)));
+
+        index.remove(1L);
+
+        assertThat(ids(index.suggest("ив", 10))).containsExactly(2L);
+        assertThat(index.suggest("олег", 10)).extracting(UserSuggestion::getId).containsExactly(2L);
+    }
+
+    @Test
+    void compaction_shouldKeepResultsUnchanged() {
+        index.rebuild(load(user(1, "Иванов", "Олег", null)));
+
+        index.put(user(2, "Ивлев", "Олег", null));
+        index.put(user(3, "Ивашов", "Олег", null));
+        index.remove(1L);
+
+        assertThat(ids(index.suggest("ив", 10))).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void suggest_shouldReturnNothingForBlankQuery() {
+        index.rebuild(load(user(1, "Иванов", "Олег", null)));
+
+        assertThat(index.suggest("  ", 10)).isEmpty();
+    }
+
+    private static List<Long> ids(List<UserSuggestion> suggestions) {
+        return suggestions.stream().map(UserSuggestion::getId).toList();
+    }
+
+    private static Consumer<Consumer<User>> load(User... users) {
+        return consumer -> List.of(users).forEach(consumer);
+    }
+
+    private static User user(long id, String lastName, String firstName, String patronymic) {
+        return User.builder()
+                .id(id)
+                .lastName(lastName)
+                .firstName(firstName)
+                .patronymic(patronymic)
+                .build();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.dankon.userinfo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.dankon.userinfo.domain.PhotoBlobRepository;
+import ru.dankon.userinfo.model.PhotoBlob;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the reference count statements against the database, from concurrent callers.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class PhotoReferenceCountTest {
+    private static final int UPLOADS = 8;
+
+    @Autowired
+    private PhotoStore photoStore;
+
+    @Autowired
+    private PhotoBlobRepository photoBlobRepository;
+
+    @Test
+    void concurrentUploadsAndReleases_shouldKeepExactCount() throws Exception {
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+
+        List<String> paths = runConcurrently(() -> photoStore.store(new ByteArrayInputStream(content), -1, ".jpg"));
+
+        String path = paths.getFirst();
+        assertThat(paths).containsOnly(path);
+        assertThat(photoBlobRepository.findById(path)).map(PhotoBlob::getRefCount).contains((long) UPLOADS);
+
+        runConcurrently(() -> {
+            photoStore.release(path);
+            return path;
+        });
+
+        assertThat(photoBlobRepository.existsById(path)).isFalse();
+        assertThat(photoStore.resolve(path)).doesNotExist();
+    }
+
+    private static List<String> runConcurrently(Callable<String> task) throws Exception {
+        List<Future<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(UPLOADS)) {
+            for (int i = 0; i < UPLOADS; i++) {
+                futures.add(executor.submit(task));
+            }
+        }
+        List<String> results = new ArrayList<>();
+        for (Future<String> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.dankon.userinfo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import ru.dankon.userinfo.exceptions.UserNotFoundException;
+import ru.dankon.userinfo.service.impl.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void execute_shouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        List<Future<String>> results = runConcurrently(id -> {
+            loads.incrementAndGet();
+            return "user " + id;
+        });
+
+        for (Future<String> result : results) {
+            assertThat(result.get()).isEqualTo("user 1");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("executed")).isEqualTo(1);
+        assertThat(count("shared")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    void execute_shouldRethrowLoaderExceptionToEveryCallerAndNotKeepIt() throws Exception {
+        List<Future<String>> results = runConcurrently(id -> {
+            throw new UserNotFoundException(id);
+        });
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(result::get).hasCauseInstanceOf(UserNotFoundException.class);
+        }
+        assertThat(singleFlight.execute(1L, id -> "created")).isEqualTo("created");
+    }
+
+    @Test
+    @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void execute_shouldReleaseWaitingCallersWhenLoaderThrowsError() throws Exception {
+        List<Future<String>> results = runConcurrently(id -> {
+            throw new StackOverflowError();
+        });
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(StackOverflowError.class);
+        }
+    }
+
+    @Test
+    void forget_shouldStartNewLoadForLaterCallers() {
+        String result = singleFlight.execute(1L, id -> {
+            singleFlight.forget(id);
+            return singleFlight.execute(id, key -> "fresh") + " after stale";
+        });
+
+        assertThat(result).isEqualTo("fresh after stale");
+        assertThat(count("executed")).isEqualTo(2);
+    }
+
+    /**
+     * Starts all callers, and lets the first load finish only once the others are waiting for it.
+     */
+    private List<Future<String>> runConcurrently(Function<Long, String> loader) throws InterruptedException {
+        CountDownLatch waiting = new CountDownLatch(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    waiting.countDown();
+                    return singleFlight.execute(1L, id -> {
+                        awaitOthers(waiting);
+                        return loader.apply(id);
+                    });
+                }));
+            }
+        }
+        return results;
+    }
+
+    private static void awaitOthers(CountDownLatch waiting) {
+        try {
+            waiting.await(5, TimeUnit.SECONDS);
+            // Callers count down just before they join the running load
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("users.lookup.queries").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.dankon.userinfo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.dankon.userinfo.config.properties.ThumbnailProperties;
+import ru.dankon.userinfo.service.impl.ThumbnailServiceImpl;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ThumbnailServiceTest {
+    private static final String PHOTO = "ab/cd/photo.png";
+
+    @TempDir
+    private Path storage;
+
+    private final PhotoStore photoStore = mock(PhotoStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ThumbnailServiceImpl thumbnailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path original = storage.resolve("photo.png");
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+        when(photoStore.resolve(PHOTO)).thenReturn(original);
+        for (int size : List.of(64, 256, 512)) {
+            when(photoStore.resolveVariant(PHOTO, size)).thenReturn(storage.resolve("photo_" + size + ".png"));
+        }
+        thumbnailService = new ThumbnailServiceImpl(
+                photoStore, new ThumbnailProperties(List.of(512, 64, 256), 1, 10, 10_000_000), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void generateAsync_shouldRenderVariantsSmallerThanOriginal() throws IOException {
+        thumbnailService.generateAsync(PHOTO);
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> meterRegistry.timer("photo.thumbnails.processing").count() == 1);
+        BufferedImage small = ImageIO.read(storage.resolve("photo_64.png").toFile());
+        assertThat(small.getWidth()).isEqualTo(64);
+        assertThat(small.getHeight()).isEqualTo(32);
+        assertThat(storage.resolve("photo_256.png")).exists();
+        assertThat(storage.resolve("photo_512.png")).doesNotExist();
+    }
+
+    @Test
+    void generateAsync_shouldRenderLargeImageFromSubsampledDecode() throws IOException {
+        ImageIO.write(new BufferedImage(3000, 1500, BufferedImage.TYPE_INT_RGB), "png",
+                storage.resolve("photo.png").toFile());
+
+        thumbnailService.generateAsync(PHOTO);
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> meterRegistry.timer("photo.thumbnails.processing").count() == 1);
+        BufferedImage large = ImageIO.read(storage.resolve("photo_512.png").toFile());
+        assertThat(large.getWidth()).isEqualTo(512);
+        assertThat(large.getHeight()).isEqualTo(256);
+        assertThat(storage.resolve("photo_64.png")).exists();
+    }
+
+    @Test
+    void generateAsync_shouldNotDecodeImageDeclaringTooManyPixels() throws IOException {
+        // A few bytes claiming 50000x50000 pixels, which would take 10 GB once decoded
+        Files.write(storage.resolve("photo.png"), pngDeclaring(50_000, 50_000));
+
+        thumbnailService.generateAsync(PHOTO);
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> meterRegistry.timer("photo.thumbnails.processing").count() == 1);
+        assertThat(storage.resolve("photo_64.png")).doesNotExist();
+    }
+
+    @Test
+    void generateAsync_shouldSkipImageOverPixelLimit() {
+        ThumbnailServiceImpl limited = new ThumbnailServiceImpl(
+                photoStore, new ThumbnailProperties(List.of(64), 1, 10, 400 * 200 - 1), meterRegistry);
+        try {
+            limited.generateAsync(PHOTO);
+
+            await().atMost(Duration.ofSeconds(5))
+                    .until(() -> meterRegistry.timer("photo.thumbnails.processing").count() == 1);
+            assertThat(storage.resolve("photo_64.png")).doesNotExist();
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void resolveNearest_shouldFallBackToOriginalUntilVariantIsReady() {
+        assertThat(thumbnailService.resolveNearest(PHOTO, 64)).isEqualTo(storage.resolve("photo.png"));
+    }
+
+    @Test
+    void resolveNearest_shouldPickSmallestReadyVariantNotBelowRequestedSize() {
+        thumbnailService.generateAsync(PHOTO);
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> meterRegistry.timer("photo.thumbnails.processing").count() == 1);
+
+        assertThat(thumbnailService.resolveNearest(PHOTO, 100)).isEqualTo(storage.resolve("photo_256.png"));
+        assertThat(thumbnailService.resolveNearest(PHOTO, 300)).isEqualTo(storage.resolve("photo.png"));
+        assertThat(thumbnailService.resolveNearest(PHOTO, null)).isEqualTo(storage.resolve("photo.png"));
+    }
+
+    private static byte[] pngDeclaring(int width, int height) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png", png);
+        ByteBuffer bytes = ByteBuffer.wrap(png.toByteArray());
+        // IHDR is the first chunk: its data starts with the width and height, and its CRC covers type and data
+        bytes.putInt(16, width).putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 12, 17);
+        bytes.putInt(29, (int) crc.getValue());
+        return bytes.array();
+    }
+}
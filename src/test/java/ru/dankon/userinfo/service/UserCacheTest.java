@@ -0,0 +1,76 @@
+package ru.dankon.userinfo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.util.unit.DataSize;
+import ru.dankon.userinfo.config.properties.UserCacheProperties;
+import ru.dankon.userinfo.exceptions.UserNotFoundException;
+import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.impl.UserCache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserCacheTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserCache userCache = new UserCache(
+            new UserCacheProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1)), meterRegistry);
+
+    @Test
+    void get_shouldDropLoadInvalidatedWhileRunning() {
+        User stale = User.builder().id(1L).email("old@test.com").build();
+        User fresh = stale.toBuilder().email("new@test.com").build();
+
+        userCache.get(1L, id -> {
+            // A write lands while the row is being read
+            userCache.invalidate(id);
+            return stale;
+        });
+
+        assertThat(userCache.getIfPresent(1L)).isNull();
+        assertThat(userCache.get(1L, id -> fresh).getEmail()).isEqualTo("new@test.com");
+    }
+
+    @Test
+    void get_shouldRethrowLoaderExceptionAndNotCacheIt() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> userCache.get(1L, id -> {
+                loads.incrementAndGet();
+                throw new UserNotFoundException(id);
+            })).isInstanceOf(UserNotFoundException.class);
+        }
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void get_shouldRethrowLoaderErrorAndNotCacheIt() {
+        assertThatThrownBy(() -> userCache.get(1L, id -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(userCache.get(1L, id -> User.builder().id(id).build()).getId()).isEqualTo(1L);
+    }
+
+    @Test
+    void get_shouldPublishHitsAndMisses() {
+        userCache.get(1L, id -> User.builder().id(id).build());
+        userCache.get(1L, id -> User.builder().id(id).build());
+
+        assertThat(gets("miss")).isEqualTo(1);
+        assertThat(gets("hit")).isEqualTo(1);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "users").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.dankon.userinfo.service;
+
+import org.junit.jupiter.api.Test;
+import ru.dankon.userinfo.config.properties.ChangeFeedProperties;
+import ru.dankon.userinfo.dto.UserChangeEvent;
+import ru.dankon.userinfo.service.impl.UserChangeFeed;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserChangeFeedTest {
+    private final UserChangeFeed feed = new UserChangeFeed(
+            new ChangeFeedProperties(4, Duration.ofSeconds(1), Duration.ofMinutes(1), 10));
+
+    @Test
+    void read_shouldReturnEventsAfterGivenSequenceInOrder() throws Exception {
+        long start = feed.lastSequence();
+        feed.publish(UserChangeEvent.Type.CREATED, 1L, 0L);
+        feed.publish(UserChangeEvent.Type.UPDATED, 1L, 1L);
+        feed.publish(UserChangeEvent.Type.DELETED, 1L, null);
+
+        UserChangeFeed.Replay replay = feed.read(start + 1, 10, Duration.ZERO);
+
+        assertThat(replay.missed()).isFalse();
+        assertThat(replay.events()).extracting(UserChangeEvent::getType)
+                .containsExactly(UserChangeEvent.Type.UPDATED, UserChangeEvent.Type.DELETED);
+        assertThat(replay.events()).extracting(UserChangeEvent::getSequence)
+                .containsExactly(start + 2, start + 3);
+        assertThat(replay.resumeAfter()).isEqualTo(start + 3);
+    }
+
+    @Test
+    void read_shouldReportMissedEventsAndResumeFromOldestRetained() throws Exception {
+        long start = feed.lastSequence();
+        for (long id = 1; id <= 6; id++) {
+            feed.publish(UserChangeEvent.Type.CREATED, id, 0L);
+        }
+
+        UserChangeFeed.Replay replay = feed.read(start, 10, Duration.ZERO);
+
+        assertThat(replay.missed()).isTrue();
+        assertThat(replay.events()).extracting(UserChangeEvent::getUserId).containsExactly(3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    void read_shouldTreatUnknownFutureIdAsMissed() throws Exception {
+        feed.publish(UserChangeEvent.Type.CREATED, 1L, 0L);
+
+        UserChangeFeed.Replay replay = feed.read(feed.lastSequence() + 100, 10, Duration.ZERO);
+
+        assertThat(replay.missed()).isTrue();
+        assertThat(replay.events()).extracting(UserChangeEvent::getUserId).containsExactly(1L);
+        assertThat(replay.resumeAfter()).isEqualTo(feed.lastSequence());
+    }
+
+    @Test
+    void read_shouldTreatIdFromBeforeRestartAsMissed() throws Exception {
+        UserChangeFeed.Replay replay = feed.read(feed.lastSequence() - 1, 10, Duration.ZERO);
+
+        assertThat(replay.missed()).isTrue();
+        assertThat(replay.events()).isEmpty();
+        assertThat(replay.resumeAfter()).isEqualTo(feed.lastSequence());
+    }
+
+    @Test
+    void read_afterMissOnEmptyFeed_shouldResumeWithoutAnotherMiss() throws Exception {
+        long resumeAfter = feed.read(feed.lastSequence() + 100, 10, Duration.ZERO).resumeAfter();
+
+        UserChangeFeed.Replay replay = feed.read(resumeAfter, 10, Duration.ofMillis(20));
+
+        assertThat(replay.missed()).isFalse();
+        assertThat(replay.events()).isEmpty();
+    }
+
+    @Test
+    void read_shouldWaitForNextEvent() throws Exception {
+        long start = feed.lastSequence();
+        CompletableFuture<UserChangeFeed.Replay> pending = CompletableFuture.supplyAsync(() -> {
+            try {
+                return feed.read(start, 10, Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        feed.publish(UserChangeEvent.Type.CREATED, 7L, 0L);
+
+        assertThat(pending.get(5, TimeUnit.SECONDS).events())
+                .extracting(UserChangeEvent::getUserId).containsExactly(7L);
+    }
+
+    @Test
+    void read_shouldReturnEmptyAfterTimeout() throws Exception {
+        UserChangeFeed.Replay replay = feed.read(feed.lastSequence(), 10, Duration.ofMillis(20));
+
+        assertThat(replay.missed()).isFalse();
+        assertThat(replay.events()).isEmpty();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.dankon.userinfo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.dankon.userinfo.service.impl.UserSchemaMigration;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserSchemaMigrationTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private UserSchemaMigration migration;
+
+    @Test
+    void migrate_shouldClearDatesThatMatchPatternButDoNotExistBeforeAlter() {
+        givenTextBirthDates(List.of("1990-05-01", " 01.05.1990", "31.02.1990", "2020-13-01", "1990-02-29", "garbage", ""));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{2, 1, 1, 3});
+
+        migration.migrate();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> cleared = ArgumentCaptor.forClass(List.class);
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).batchUpdate(eq("update users set birth_date = null where birth_date = ?"),
+                cleared.capture());
+        order.verify(jdbcTemplate).execute(startsWith("alter table users alter column birth_date type date"));
+        assertThat(cleared.getValue())
+                .extracting(args -> args[0])
+                .containsExactly("31.02.1990", "2020-13-01", "1990-02-29", "garbage");
+    }
+
+    @Test
+    void migrate_withOnlyValidDates_shouldNotClearAnything() {
+        givenTextBirthDates(List.of("1990-05-01", "01.05.1990"));
+
+        migration.migrate();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate).execute(startsWith("alter table users alter column birth_date type date"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenTextBirthDates(List<String> values) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(startsWith("select data_type"), eq(String.class)))
+                .thenReturn("character varying");
+        when(jdbcTemplate.queryForList(startsWith("select distinct birth_date"), eq(String.class)))
+                .thenReturn(values);
+    }
+}
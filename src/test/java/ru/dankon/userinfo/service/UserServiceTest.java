@@ -1,30 +1,66 @@
 package ru.dankon.userinfo.service;
 
-import org.junit.jupiter.api.BeforeEach;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import ru.dankon.userinfo.config.properties.BatchProperties;
+import ru.dankon.userinfo.config.properties.ChangeFeedProperties;
+import ru.dankon.userinfo.config.properties.PaginationProperties;
+import ru.dankon.userinfo.config.properties.SuggestProperties;
+import ru.dankon.userinfo.config.properties.UserCacheProperties;
 import ru.dankon.userinfo.domain.UserRepository;
+import ru.dankon.userinfo.dto.BatchItemResult;
+import ru.dankon.userinfo.dto.CursorPage;
+import ru.dankon.userinfo.dto.UserChangeEvent;
+import ru.dankon.userinfo.dto.UserContactInfo;
+import ru.dankon.userinfo.dto.UserContactsResponse;
+import ru.dankon.userinfo.dto.UserPatch;
+import ru.dankon.userinfo.dto.UserSearchCriteria;
+import ru.dankon.userinfo.dto.UserSuggestion;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+import ru.dankon.userinfo.exceptions.PhotoNotFoundException;
 import ru.dankon.userinfo.exceptions.UserAlreadyExistsException;
 import ru.dankon.userinfo.exceptions.UserNotFoundException;
+import ru.dankon.userinfo.exceptions.UserVersionMismatchException;
 import ru.dankon.userinfo.model.User;
+import ru.dankon.userinfo.service.impl.NameSuggestIndex;
+import ru.dankon.userinfo.service.impl.SingleFlight;
+import ru.dankon.userinfo.service.impl.UserBulkInserter;
+import ru.dankon.userinfo.service.impl.UserCache;
+import ru.dankon.userinfo.service.impl.UserChangeFeed;
 import ru.dankon.userinfo.service.impl.UserServiceImpl;
+import ru.dankon.userinfo.util.CursorUtil;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -33,9 +69,44 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
     @Mock
     private MultipartFile multipartFile;
 
+    @Mock
+    private PhotoStore photoStore;
+
+    @Mock
+    private ThumbnailService thumbnailService;
+
+    @Mock
+    private UserBulkInserter bulkInserter;
+
+    @Spy
+    private PaginationProperties paginationProperties = new PaginationProperties(2, 10);
+
+    @Spy
+    private BatchProperties batchProperties = new BatchProperties(10);
+
+    @Spy
+    private SuggestProperties suggestProperties = new SuggestProperties(5, 10, 100);
+
+    @Spy
+    private NameSuggestIndex nameSuggestIndex = new NameSuggestIndex(suggestProperties);
+
+    @Spy
+    private UserChangeFeed changeFeed = new UserChangeFeed(
+            new ChangeFeedProperties(100, Duration.ofSeconds(1), Duration.ofMinutes(1), 10));
+
+    @Spy
+    private UserCache userCache = new UserCache(
+            new UserCacheProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1)), new SimpleMeterRegistry());
+
+    @Spy
+    private SingleFlight<Long, UserContactInfo> contactLookups = new SingleFlight<>("contact", new SimpleMeterRegistry());
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -48,18 +119,82 @@ class UserServiceTest {
             .phoneNumber("+79998887766")
             .build();
 
-    @BeforeEach
-    void setUp() {
-        ReflectionTestUtils.setField(userService, "storageDirectory", "test-storage");
+    @Test
+    void getUsers_shouldReturnLastPageWithoutCursor() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(3)))
+                .thenReturn(List.of(testUser));
+
+        CursorPage<User> result = userService.getUsers(null, null);
+
+        assertThat(result.getItems()).containsExactly(testUser);
+        assertThat(result.getNext()).isNull();
+    }
+
+    @Test
+    void getUsers_shouldReturnCursorOfLastItemWhenMoreRowsExist() {
+        User second = testUser.toBuilder().id(2L).build();
+        User third = testUser.toBuilder().id(3L).build();
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(3)))
+                .thenReturn(List.of(testUser, second, third));
+
+        CursorPage<User> result = userService.getUsers(null, null);
+
+        assertThat(result.getItems()).containsExactly(testUser, second);
+        assertThat(CursorUtil.decode(result.getNext())).isEqualTo(2L);
     }
 
     @Test
-    void getAllUsers_shouldReturnAllUsers() {
-        when(userRepository.findAll()).thenReturn(List.of(testUser));
+    void getUsers_shouldContinueAfterCursor() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(6))).thenReturn(List.of());
+
+        CursorPage<User> result = userService.getUsers(CursorUtil.encode(1L), 5);
 
-        List<User> result = userService.getAllUsers();
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result.getNext()).isNull();
+    }
 
-        assertThat(result).containsExactly(testUser);
+    @Test
+    void getUsers_shouldRejectLimitAboveMaximum() {
+        assertThatThrownBy(() -> userService.getUsers(null, 11))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void getUsers_shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> userService.getUsers("not-a-cursor", null))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void searchUsers_shouldRequireAtLeastOneCriterion() {
+        UserSearchCriteria criteria = UserSearchCriteria.builder().lastName("  ").build();
+
+        assertThatThrownBy(() -> userService.searchUsers(criteria, null, null))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void searchUsers_shouldRejectInvertedBirthDateRange() {
+        UserSearchCriteria criteria = UserSearchCriteria.builder()
+                .birthDateFrom(LocalDate.of(2000, 1, 1))
+                .birthDateTo(LocalDate.of(1990, 1, 1))
+                .build();
+
+        assertThatThrownBy(() -> userService.searchUsers(criteria, null, null))
+                .isInstanceOf(InvalidRequestException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void streamAllUsers_shouldDetachEachStreamedUser() {
+        when(userRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(testUser));
+        List<User> received = new ArrayList<>();
+
+        userService.streamAllUsers(received::add);
+
+        assertThat(received).containsExactly(testUser);
+        verify(entityManager).detach(testUser);
     }
 
     @Test
@@ -73,6 +208,7 @@ class UserServiceTest {
         verify(userRepository).save(userCaptor.capture());
         assertThat(userCaptor.getValue()).isEqualTo(testUser);
         assertThat(result).isEqualTo(testUser);
+        verify(changeFeed).publish(UserChangeEvent.Type.CREATED, 1L, null);
     }
 
     @Test
@@ -92,6 +228,50 @@ class UserServiceTest {
                 .isInstanceOf(UserAlreadyExistsException.class);
     }
 
+    @Test
+    void createUsers_shouldClassifyEachItem() {
+        User fresh = User.builder().email("a@test.com").phoneNumber("+70000000001").build();
+        User taken = User.builder().email("test@test.com").phoneNumber("+70000000002").build();
+        User repeated = User.builder().email("a@test.com").phoneNumber("+70000000003").build();
+        User incomplete = User.builder().email("b@test.com").build();
+
+        when(userRepository.findExistingEmails(any())).thenReturn(Set.of("test@test.com"));
+        when(userRepository.findExistingPhoneNumbers(any())).thenReturn(Set.of());
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> saved = invocation.getArgument(0);
+            saved.forEach(user -> user.setId(10L));
+            return saved;
+        });
+
+        List<BatchItemResult> results = userService.createUsers(List.of(fresh, taken, repeated, incomplete));
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(
+                BatchItemResult.Status.CREATED,
+                BatchItemResult.Status.DUPLICATE,
+                BatchItemResult.Status.DUPLICATE,
+                BatchItemResult.Status.INVALID);
+        assertThat(results.get(0).getId()).isEqualTo(10L);
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void createUsers_shouldFallBackToSingleInsertsOnConcurrentConflict() {
+        User first = User.builder().email("a@test.com").phoneNumber("+70000000001").build();
+        User second = User.builder().email("b@test.com").phoneNumber("+70000000002").build();
+
+        when(userRepository.findExistingEmails(any())).thenReturn(Set.of());
+        when(userRepository.findExistingPhoneNumbers(any())).thenReturn(Set.of());
+        when(userRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("conflict"));
+        when(userRepository.save(first)).thenReturn(first.toBuilder().id(1L).build());
+        when(userRepository.save(second)).thenThrow(new DataIntegrityViolationException("conflict"));
+
+        List<BatchItemResult> results = userService.createUsers(List.of(first, second));
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(
+                BatchItemResult.Status.CREATED,
+                BatchItemResult.Status.DUPLICATE);
+    }
+
     @Test
     void getUserById_shouldReturnUser() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
@@ -101,6 +281,26 @@ class UserServiceTest {
         assertThat(result).isEqualTo(testUser);
     }
 
+    @Test
+    void getUserById_shouldServeRepeatedReadsFromCache() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        userService.getUserById(1L);
+        User result = userService.getUserById(1L);
+
+        assertThat(result).isEqualTo(testUser);
+        verify(userRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getUserById_shouldNotExposeCachedInstance() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        userService.getUserById(1L).setEmail("changed@test.com");
+
+        assertThat(userService.getUserById(1L).getEmail()).isEqualTo("test@test.com");
+    }
+
     @Test
     void getUserById_shouldThrowWhenNotFound() {
         when(userRepository.findById(999L)).thenReturn(Optional.empty());
@@ -111,31 +311,166 @@ class UserServiceTest {
     }
 
     @Test
-    void updateUser_shouldUpdateExistingUser() {
+    void getUserContactInfoById_shouldUseProjectionWhenUserIsNotCached() {
+        UserContactInfo contact = UserContactInfo.builder().id(1L).email("test@test.com").build();
+        when(userRepository.findContactInfoById(1L)).thenReturn(Optional.of(contact));
+
+        UserContactInfo result = userService.getUserContactInfoById(1L);
+
+        assertThat(result).isEqualTo(contact);
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void deleteUser_shouldDetachRunningContactLookup() {
+        userService.deleteUser(1L);
+
+        verify(contactLookups).forget(1L);
+    }
+
+    @Test
+    void getUserContactInfoById_shouldThrowWhenNotFound() {
+        when(userRepository.findContactInfoById(999L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userService.getUserContactInfoById(999L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    void getUserContactInfos_shouldReportMissingIdsInRequestOrder() {
+        UserContactInfo first = UserContactInfo.builder().id(1L).build();
+        UserContactInfo third = UserContactInfo.builder().id(3L).build();
+        when(userRepository.findContactInfoByIdIn(List.of(3L, 2L, 1L))).thenReturn(List.of(first, third));
+
+        UserContactsResponse result = userService.getUserContactInfos(List.of(3L, 2L, 1L, 3L));
+
+        assertThat(result.getContacts()).containsExactly(third, first);
+        assertThat(result.getMissingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void getUserContactInfos_shouldRejectTooManyIds() {
+        ReflectionTestUtils.setField(userService, "batchProperties", new BatchProperties(2));
+
+        assertThatThrownBy(() -> userService.getUserContactInfos(List.of(1L, 2L, 3L)))
+                .isInstanceOf(InvalidRequestException.class);
+    }
+
+    @Test
+    void updateUser_shouldUpdateDetailsAndReturnFreshUser() {
         User updatedUser = testUser.toBuilder()
                 .email("new@email.com")
+                .version(1L)
                 .build();
 
-        when(userRepository.existsById(1L)).thenReturn(true);
-        when(userRepository.save(any(User.class))).thenReturn(updatedUser);
+        when(userRepository.updateDetails(1L, updatedUser, null)).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(updatedUser));
 
         User result = userService.updateUser(1L, updatedUser);
 
-        verify(userRepository).save(userCaptor.capture());
-        assertThat(userCaptor.getValue().getId()).isEqualTo(1L);
-        assertThat(userCaptor.getValue().getEmail()).isEqualTo("new@email.com");
         assertThat(result).isEqualTo(updatedUser);
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void updateUser_shouldInvalidateCachedUser() {
+        User updatedUser = testUser.toBuilder()
+                .email("new@email.com")
+                .build();
+
+        when(userRepository.findById(1L))
+                .thenReturn(Optional.of(testUser))
+                .thenReturn(Optional.of(updatedUser));
+        when(userRepository.updateDetails(1L, updatedUser, null)).thenReturn(1);
+
+        userService.getUserById(1L);
+        userService.updateUser(1L, updatedUser);
+
+        assertThat(userService.getUserById(1L).getEmail()).isEqualTo("new@email.com");
+    }
+
+    @Test
+    void updateUser_shouldReplaceNamesInSuggestionIndex() {
+        User renamed = testUser.toBuilder().lastName("Петров").build();
+        when(userRepository.updateDetails(1L, renamed, null)).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(renamed));
+        nameSuggestIndex.put(testUser.toBuilder().lastName("Иванов").build());
+
+        userService.updateUser(1L, renamed);
+
+        assertThat(userService.suggestUsers("Ив", null)).isEmpty();
+        assertThat(userService.suggestUsers("Пет", null)).extracting(UserSuggestion::getId).containsExactly(1L);
+    }
+
+    @Test
+    void suggestUsers_shouldRejectLimitAboveMaximum() {
+        assertThatThrownBy(() -> userService.suggestUsers("Ив", 11))
+                .isInstanceOf(InvalidRequestException.class);
     }
 
     @Test
     void updateUser_shouldThrowWhenUserNotFound() {
-        when(userRepository.existsById(999L)).thenReturn(false);
+        when(userRepository.updateDetails(999L, testUser, null)).thenReturn(0);
 
         assertThatThrownBy(() -> userService.updateUser(999L, testUser))
                 .isInstanceOf(UserNotFoundException.class)
                 .hasMessageContaining("999");
     }
 
+    @Test
+    void updateUserWithVersion_shouldReturnNextVersionWithoutReading() {
+        when(userRepository.updateDetails(1L, testUser, 3L)).thenReturn(1);
+
+        long version = userService.updateUser(1L, testUser, 3L);
+
+        assertThat(version).isEqualTo(4L);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void updateUserWithVersion_shouldFailPreconditionWhenVersionIsStale() {
+        when(userRepository.updateDetails(1L, testUser, 3L)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> userService.updateUser(1L, testUser, 3L))
+                .isInstanceOf(UserVersionMismatchException.class);
+    }
+
+    @Test
+    void patchUserWithVersion_shouldSkipUniquenessChecksWhenContactsAreNotPatched() {
+        UserPatch patch = UserPatch.from(new ObjectMapper().createObjectNode().put("lastName", "Петров"));
+        when(userRepository.patch(1L, patch.changes(), 3L)).thenReturn(1);
+        nameSuggestIndex.put(testUser.toBuilder().lastName("Иванов").build());
+
+        long version = userService.patchUser(1L, patch, 3L);
+
+        assertThat(version).isEqualTo(4L);
+        assertThat(userService.suggestUsers("Пет", null)).extracting(UserSuggestion::getId).containsExactly(1L);
+        verify(userRepository, never()).existsByEmailAndIdNot(anyString(), anyLong());
+        verify(userRepository, never()).existsByPhoneNumberAndIdNot(anyString(), anyLong());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void patchUser_shouldRejectEmailTakenByAnotherUser() {
+        UserPatch patch = UserPatch.from(new ObjectMapper().createObjectNode().put("email", "taken@email.com"));
+        when(userRepository.existsByEmailAndIdNot("taken@email.com", 1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> userService.patchUser(1L, patch))
+                .isInstanceOf(UserAlreadyExistsException.class);
+        verify(userRepository, never()).patch(anyLong(), any(), any());
+    }
+
+    @Test
+    void updateUserWithVersion_shouldThrowNotFoundForMissingUser() {
+        when(userRepository.updateDetails(1L, testUser, 3L)).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(false);
+
+        assertThatThrownBy(() -> userService.updateUser(1L, testUser, 3L))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
     @Test
     void deleteUser_shouldCallRepositoryDelete() {
         doNothing().when(userRepository).deleteById(1L);
@@ -143,6 +478,17 @@ class UserServiceTest {
         userService.deleteUser(1L);
 
         verify(userRepository).deleteById(1L);
+        verify(nameSuggestIndex).remove(1L);
+        verify(changeFeed, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    void deleteUser_shouldPublishDeletionOfExistingUser() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        userService.deleteUser(1L);
+
+        verify(changeFeed).publish(UserChangeEvent.Type.DELETED, 1L, null);
     }
 
     @Test
@@ -153,14 +499,55 @@ class UserServiceTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(userWithPhoto));
         when(multipartFile.getOriginalFilename()).thenReturn("photo.jpg");
         when(multipartFile.getInputStream()).thenReturn(inputStream);
+        when(multipartFile.getSize()).thenReturn(0L);
+        when(photoStore.store(inputStream, 0L, ".jpg")).thenReturn("ab/cd/abcd.jpg");
         when(userRepository.save(any(User.class))).thenReturn(userWithPhoto);
 
         userService.uploadPhoto(1L, multipartFile);
 
         verify(userRepository).save(userCaptor.capture());
-        assertThat(userCaptor.getValue().getPhotoPath())
-                .startsWith("test-storage")
-                .endsWith(".jpg");
+        assertThat(userCaptor.getValue().getPhotoPath()).isEqualTo("ab/cd/abcd.jpg");
+        verify(thumbnailService).generateAsync("ab/cd/abcd.jpg");
+    }
+
+    @Test
+    void uploadPhoto_shouldReleasePreviousPhotoAfterSaving() throws IOException {
+        User userWithPhoto = testUser.toBuilder().photoPath("old-path").build();
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(userWithPhoto));
+        when(multipartFile.getInputStream()).thenReturn(inputStream);
+        when(photoStore.store(inputStream, 0L, "")).thenReturn("ab/cd/abcd");
+        when(userRepository.save(any(User.class))).thenReturn(userWithPhoto);
+
+        userService.uploadPhoto(1L, multipartFile);
+
+        InOrder inOrder = inOrder(photoStore, userRepository);
+        inOrder.verify(photoStore).store(inputStream, 0L, "");
+        inOrder.verify(userRepository).save(any(User.class));
+        inOrder.verify(photoStore).release("old-path");
+    }
+
+    @Test
+    void uploadPhoto_shouldStoreRawBodyWithExtensionFromContentType() {
+        InputStream body = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(photoStore.store(body, 3L, ".png")).thenReturn("ab/cd/abcd.png");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        User result = userService.uploadPhoto(1L, body, 3L, "image/png");
+
+        assertThat(result.getPhotoPath()).isEqualTo("ab/cd/abcd.png");
+        verifyNoInteractions(multipartFile);
+    }
+
+    @Test
+    void uploadPhoto_shouldNotStoreRawBodyForUnknownUser() {
+        when(userRepository.findById(999L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userService.uploadPhoto(999L, InputStream.nullInputStream(), 0L, "image/png"))
+                .isInstanceOf(UserNotFoundException.class);
+        verifyNoInteractions(photoStore);
     }
 
     @Test
@@ -173,24 +560,36 @@ class UserServiceTest {
         assertThat(result).isEqualTo("test-path");
     }
 
+    @Test
+    void getPhotoFile_shouldThrowWhenUserHasNoPhoto() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        assertThatThrownBy(() -> userService.getPhotoFile(1L, null))
+                .isInstanceOf(PhotoNotFoundException.class);
+    }
+
     @Test
     void deletePhoto_shouldRemovePhotoPath() {
         User userWithPhoto = testUser.toBuilder().photoPath("test-path").build();
         when(userRepository.findById(1L)).thenReturn(Optional.of(userWithPhoto));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         userService.deletePhoto(1L);
 
         verify(userRepository).save(userCaptor.capture());
         assertThat(userCaptor.getValue().getPhotoPath()).isNull();
+        verify(photoStore).release("test-path");
     }
 
     @Test
     void deletePhoto_shouldHandleNullPhotoPath() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         userService.deletePhoto(1L);
 
         verify(userRepository).save(userCaptor.capture());
         assertThat(userCaptor.getValue().getPhotoPath()).isNull();
+        verify(changeFeed).publish(UserChangeEvent.Type.PHOTO_DELETED, 1L, null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package ru.dankon.userinfo.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.dankon.userinfo.config.properties.AdminProperties;
+import ru.dankon.userinfo.dto.AuthRequest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@link MockMvc} signed in as the configured admin. Import it into a {@code @SpringBootTest}
+ * with {@code @AutoConfigureMockMvc}; the access token is obtained once per application context.
+ */
+@TestComponent
+public class AdminClient {
+    private final MockMvc mockMvc;
+    private final AdminProperties adminProperties;
+    private final ObjectMapper objectMapper;
+    private String authorization;
+
+    public AdminClient(MockMvc mockMvc, AdminProperties adminProperties, ObjectMapper objectMapper) {
+        this.mockMvc = mockMvc;
+        this.adminProperties = adminProperties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Performs a fresh password login, for tests of the login response itself.
+     */
+    public MockHttpServletResponse login() throws Exception {
+        AuthRequest credentials = new AuthRequest();
+        credentials.setUsername(adminProperties.username());
+        credentials.setPassword(adminProperties.password());
+        return mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(credentials)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    /**
+     * @return the {@code Authorization} header value
+     */
+    public String authorization() throws Exception {
+        if (authorization == null) {
+            authorization = "Bearer " + login().getContentAsString();
+        }
+        return authorization;
+    }
+
+    public ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.header(HttpHeaders.AUTHORIZATION, authorization()));
+    }
+}
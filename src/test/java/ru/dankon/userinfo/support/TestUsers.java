@@ -0,0 +1,33 @@
+package ru.dankon.userinfo.support;
+
+import ru.dankon.userinfo.model.User;
+
+import java.util.UUID;
+
+/**
+ * Users for tests sharing one database: every one gets a unique email and phone number.
+ */
+public final class TestUsers {
+
+    private TestUsers() {
+    }
+
+    public static String uniqueKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static User.UserBuilder newUser() {
+        return newUser(uniqueKey());
+    }
+
+    /**
+     * @param key makes the email {@code key@example.com} and the phone number {@code key}
+     */
+    public static User.UserBuilder newUser(String key) {
+        return User.builder()
+                .lastName("Иванов")
+                .firstName("Иван")
+                .email(key + "@example.com")
+                .phoneNumber(key);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.dankon.userinfo.util;
+
+import org.junit.jupiter.api.Test;
+import ru.dankon.userinfo.exceptions.InvalidRequestException;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTest {
+
+    @Test
+    void next_shouldReadQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,\"b, \"\"c\"\"\",\"d\r\ne\"\r\n,x,\n"));
+
+        assertThat(reader.next()).containsExactly("a", "b, \"c\"", "d\r\ne");
+        assertThat(reader.next()).containsExactly("", "x", "");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void next_shouldReadLastRecordWithoutLineBreak() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b\rc,d"));
+
+        assertThat(reader.next()).containsExactly("a", "b");
+        assertThat(reader.next()).containsExactly("c", "d");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void next_shouldFailOnUnterminatedQuote() {
+        CsvReader reader = new CsvReader(new StringReader("\"a,b\n"));
+
+        assertThatThrownBy(reader::next).isInstanceOf(InvalidRequestException.class);
+    }
+}
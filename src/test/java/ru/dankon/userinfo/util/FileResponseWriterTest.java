@@ -0,0 +1,86 @@
+package ru.dankon.userinfo.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileResponseWriterTest {
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private MockHttpServletRequest request;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.writeString(directory.resolve("photo.jpg"), "0123456789");
+        request = new MockHttpServletRequest("GET", "/users/1/photo");
+    }
+
+    @Test
+    void write_shouldReturnWholeFileWithValidators() throws IOException {
+        FileResponseWriter.write(file, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("image/jpeg");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotBlank();
+        assertThat(response.getContentAsString(StandardCharsets.US_ASCII)).isEqualTo("0123456789");
+    }
+
+    @Test
+    void write_shouldReturnNotModifiedForMatchingEtag() throws IOException {
+        FileResponseWriter.write(file, request, response);
+        MockHttpServletRequest revalidation = new MockHttpServletRequest("GET", "/users/1/photo");
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+
+        FileResponseWriter.write(file, revalidation, notModified);
+
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void write_shouldReturnRequestedRange() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+
+        FileResponseWriter.write(file, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-4/10");
+        assertThat(response.getContentAsString(StandardCharsets.US_ASCII)).isEqualTo("234");
+    }
+
+    @Test
+    void write_shouldRejectUnsatisfiableRange() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        FileResponseWriter.write(file, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void write_shouldDelegateToSendfileWhenSupported() throws IOException {
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        FileResponseWriter.write(file, request, response);
+
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename"))
+                .isEqualTo(file.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(10L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+}
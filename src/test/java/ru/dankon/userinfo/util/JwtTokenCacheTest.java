@@ -0,0 +1,49 @@
+package ru.dankon.userinfo.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenCacheTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtTokenCache tokenCache = new JwtTokenCache(100, meterRegistry);
+
+    private final Authentication authentication =
+            new UsernamePasswordAuthenticationToken("admin", null, List.of());
+
+    @Test
+    void get_shouldReturnCachedAuthenticationAndCountHit() {
+        tokenCache.put("token", authentication, Date.from(Instant.now().plusSeconds(60)));
+
+        assertThat(tokenCache.get("token")).isSameAs(authentication);
+        assertThat(gets("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldMissUnknownToken() {
+        tokenCache.put("token", authentication, Date.from(Instant.now().plusSeconds(60)));
+
+        assertThat(tokenCache.get("other-token")).isNull();
+        assertThat(gets("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldNotReturnAlreadyExpiredToken() {
+        tokenCache.put("token", authentication, Date.from(Instant.now().minusSeconds(1)));
+
+        assertThat(tokenCache.get("token")).isNull();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "jwtTokens").tag("result", result)
+                .functionCounter().count();
+    }
+}
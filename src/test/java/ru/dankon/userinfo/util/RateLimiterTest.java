@@ -0,0 +1,52 @@
+package ru.dankon.userinfo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+    private static final long INTERVAL = 100;
+    private static final long TOLERANCE = 2 * INTERVAL;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final RateLimiter limiter = new RateLimiter(clock::get);
+
+    @Test
+    void tryAcquire_shouldAllowBurstThenReportWait() {
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE)).isZero();
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE)).isZero();
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE)).isZero();
+
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL);
+
+        clock.addAndGet(INTERVAL);
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE)).isZero();
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void tryAcquire_shouldKeepSeparateBucketsPerPrincipalAndRule() {
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, 0)).isZero();
+        assertThat(limiter.tryAcquire("alice", 0, INTERVAL, 0)).isPositive();
+
+        assertThat(limiter.tryAcquire("bob", 0, INTERVAL, 0)).isZero();
+        assertThat(limiter.tryAcquire("alice", 1, INTERVAL, 0)).isZero();
+    }
+
+    @Test
+    void sweep_shouldDropOnlyRefilledBuckets() {
+        limiter.tryAcquire("alice", 0, INTERVAL, TOLERANCE);
+        clock.addAndGet(INTERVAL / 2);
+        limiter.tryAcquire("bob", 0, INTERVAL, TOLERANCE);
+
+        clock.addAndGet(INTERVAL / 2);
+        assertThat(limiter.sweep()).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+
+        clock.addAndGet(INTERVAL);
+        assertThat(limiter.sweep()).isEqualTo(1);
+        assertThat(limiter.size()).isZero();
+    }
+}